@@ -4,10 +4,18 @@ import acm.graphics.*;
 
 import java.awt.Color;
 
+import dashboard.util.ThreadMode;
+
 /**
  * Provides the base functionality for a rectangular button with which the user can interact.
  * The exact behavior of the button depends on both the specific subclass and the {@link Runnable Runnables}
  * provided by the user.
+ * <p>
+ * Starting an action interrupts the thread of the previous action, if it is still running. By default,
+ * each action runs on its own platform or virtual thread, as determined by {@link #setThreadMode(int) setThreadMode}.
+ * In {@link ThreadMode#INLINE ThreadMode.INLINE} mode, single actions instead run directly on the thread
+ * that triggered them, usually the event dispatch thread, so they must return quickly; repeated actions
+ * still run on their own thread.
  * 
  * @author Mark Sabini
  *
@@ -45,6 +53,11 @@ public abstract class Button extends Control
 	 */
 	private Thread thread;
 	
+	/**
+	 * The kind of thread on which the Runnables are executed
+	 */
+	private int threadMode = ThreadMode.PLATFORM;
+	
 	/**
 	 * Draws the Button's base and text, the latter of which is centered within the base.
 	 * 
@@ -143,6 +156,32 @@ public abstract class Button extends Control
 		this.offAction = offAction;
 	}
 	
+	/**
+	 * Sets the kind of thread on which the Button's actions are executed. The mode must be one of
+	 * {@link ThreadMode#PLATFORM ThreadMode.PLATFORM}, {@link ThreadMode#VIRTUAL ThreadMode.VIRTUAL}, or
+	 * {@link ThreadMode#INLINE ThreadMode.INLINE}. If virtual threads are not supported by the JVM, platform
+	 * threads are used instead. In inline mode, single actions run directly on the thread that triggered
+	 * them, while repeated actions still run on a platform thread.
+	 * 
+	 * @param threadMode the kind of thread on which the Button's actions are executed
+	 * @throws IllegalArgumentException if an invalid mode is specified
+	 */
+	public void setThreadMode(int threadMode)
+	{
+		if(!ThreadMode.isValidForButton(threadMode)) throw new IllegalArgumentException();
+		this.threadMode = threadMode;
+	}
+	
+	/**
+	 * Returns the kind of thread on which the Button's actions are executed.
+	 * 
+	 * @return the thread mode of the Button
+	 */
+	public int getThreadMode()
+	{
+		return threadMode;
+	}
+	
 	/**
 	 * Interrupts any other action threads and executes the Runnable associated with onAction exactly once.
 	 */
@@ -150,7 +189,12 @@ public abstract class Button extends Control
 	{
 		if(thread != null && thread.isAlive()) thread.interrupt();
 		if(onAction == null) return;
-		thread = new Thread(onAction);
+		if(threadMode == ThreadMode.INLINE)
+		{
+			onAction.run();
+			return;
+		}
+		thread = ThreadMode.newThread(threadMode, onAction);
 		thread.start();
 	}
 	
@@ -161,7 +205,12 @@ public abstract class Button extends Control
 	{
 		if(thread != null && thread.isAlive()) thread.interrupt();
 		if(offAction == null) return;
-		thread = new Thread(offAction);
+		if(threadMode == ThreadMode.INLINE)
+		{
+			offAction.run();
+			return;
+		}
+		thread = ThreadMode.newThread(threadMode, offAction);
 		thread.start();
 	}
 	
@@ -174,7 +223,7 @@ public abstract class Button extends Control
 	{
 		if(thread != null && thread.isAlive()) thread.interrupt();
 		if(onAction == null) return;
-		thread = new Thread(new Runnable()
+		thread = ThreadMode.newThread(threadMode, new Runnable()
 		{
 			public void run()
 			{
@@ -204,7 +253,7 @@ public abstract class Button extends Control
 	{
 		if(thread != null && thread.isAlive()) thread.interrupt();
 		if(offAction == null) return;
-		thread = new Thread(new Runnable()
+		thread = ThreadMode.newThread(threadMode, new Runnable()
 		{
 			public void run()
 			{
@@ -2,7 +2,6 @@ package dashboard.generator;
 
 import java.util.Random;
 
-import dashboard.readout.Readout;
 import dashboard.readout.StringUpdatable;
 
 /**
@@ -63,10 +62,9 @@ public final class AddressGenerator extends Generator
 	@Override
 	public void generate()
 	{
-		for(String key : readouts.keySet())
+		for(StringUpdatable readout : readouts.getStringUpdatables())
 		{
-			Readout readout = readouts.get(key);
-			if(readout instanceof StringUpdatable) ((StringUpdatable)readout).update(generateRandomAddress());
+			readout.update(generateRandomAddress());
 		}
 	}
 }
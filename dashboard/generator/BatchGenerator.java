@@ -0,0 +1,195 @@
+package dashboard.generator;
+
+import dashboard.readout.NumberBatchUpdatable;
+import dashboard.readout.NumberUpdatable;
+import dashboard.readout.StringBatchUpdatable;
+import dashboard.readout.StringUpdatable;
+
+/**
+ * Provides the base functionality for a Generator that produces many timestamped samples each time it
+ * wakes up. Subclasses implement {@link #generateBatch() generateBatch}, calling {@link #emit(double, long) emit}
+ * once per sample. When generateBatch returns, the samples are delivered to the Generator's Readouts:
+ * <ul>
+ * <li>{@link NumberBatchUpdatable NumberBatchUpdatables} and {@link StringBatchUpdatable StringBatchUpdatables}
+ * receive all the samples in a single call.</li>
+ * <li>Other {@link NumberUpdatable NumberUpdatables} receive only the last number, since they can only show one.</li>
+ * <li>Other {@link StringUpdatable StringUpdatables} receive every String, one call at a time.</li>
+ * </ul>
+ * Samples are stored in arrays that are allocated once and reused for every batch. If more samples
+ * are emitted than fit in the arrays, the samples collected so far are delivered early.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public abstract class BatchGenerator extends Generator
+{
+	/**
+	 * The default maximum number of samples of each kind delivered in one batch
+	 */
+	public static final int DEFAULT_CAPACITY = 256;
+	
+	/**
+	 * The numbers emitted since the last delivery
+	 */
+	private final double[] numbers;
+	
+	/**
+	 * The time at which each number was emitted, as given by System.nanoTime()
+	 */
+	private final long[] numberTimes;
+	
+	/**
+	 * The number of numbers emitted since the last delivery
+	 */
+	private int numberCount;
+	
+	/**
+	 * The Strings emitted since the last delivery
+	 */
+	private final String[] strings;
+	
+	/**
+	 * The time at which each String was emitted, as given by System.nanoTime()
+	 */
+	private final long[] stringTimes;
+	
+	/**
+	 * The number of Strings emitted since the last delivery
+	 */
+	private int stringCount;
+	
+	/**
+	 * Creates a BatchGenerator with the specified timing interval and the default capacity.
+	 * 
+	 * @param interval the time interval between batches, measured in milliseconds
+	 */
+	public BatchGenerator(int interval)
+	{
+		this(interval, DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a BatchGenerator with the specified timing interval and capacity.
+	 * 
+	 * @param interval the time interval between batches, measured in milliseconds
+	 * @param capacity the maximum number of samples of each kind delivered in one batch
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public BatchGenerator(int interval, int capacity)
+	{
+		super(interval);
+		if(capacity <= 0) throw new IllegalArgumentException();
+		numbers = new double[capacity];
+		numberTimes = new long[capacity];
+		strings = new String[capacity];
+		stringTimes = new long[capacity];
+	}
+	
+	/**
+	 * Produces one batch of samples by calling {@link #emit(double, long) emit} or
+	 * {@link #emit(String, long) emit} once per sample.
+	 */
+	protected abstract void generateBatch();
+	
+	/**
+	 * Produces one batch of samples and delivers it to the BatchGenerator's Readouts.
+	 */
+	@Override
+	public final void generate()
+	{
+		generateBatch();
+		deliverNumbers();
+		deliverStrings();
+	}
+	
+	/**
+	 * Adds a number, sampled now, to the current batch.
+	 * 
+	 * @param value the number to add
+	 */
+	protected final void emit(double value)
+	{
+		emit(value, System.nanoTime());
+	}
+	
+	/**
+	 * Adds a number to the current batch.
+	 * 
+	 * @param value the number to add
+	 * @param timestamp the time at which the number was sampled, as given by System.nanoTime()
+	 */
+	protected final void emit(double value, long timestamp)
+	{
+		if(numberCount == numbers.length) deliverNumbers();
+		numbers[numberCount] = value;
+		numberTimes[numberCount] = timestamp;
+		++numberCount;
+	}
+	
+	/**
+	 * Adds a String, produced now, to the current batch.
+	 * 
+	 * @param str the String to add
+	 */
+	protected final void emit(String str)
+	{
+		emit(str, System.nanoTime());
+	}
+	
+	/**
+	 * Adds a String to the current batch.
+	 * 
+	 * @param str the String to add
+	 * @param timestamp the time at which the String was produced, as given by System.nanoTime()
+	 */
+	protected final void emit(String str, long timestamp)
+	{
+		if(stringCount == strings.length) deliverStrings();
+		strings[stringCount] = str;
+		stringTimes[stringCount] = timestamp;
+		++stringCount;
+	}
+	
+	/**
+	 * Delivers the numbers emitted since the last delivery and empties the batch.
+	 */
+	private void deliverNumbers()
+	{
+		if(numberCount == 0) return;
+		for(NumberBatchUpdatable readout : readouts.getNumberBatchUpdatables())
+		{
+			readout.update(numbers, numberTimes, numberCount);
+		}
+		double last = numbers[numberCount - 1];
+		for(NumberUpdatable readout : readouts.getPlainNumberUpdatables())
+		{
+			readout.update(last);
+		}
+		numberCount = 0;
+	}
+	
+	/**
+	 * Delivers the Strings emitted since the last delivery and empties the batch.
+	 */
+	private void deliverStrings()
+	{
+		if(stringCount == 0) return;
+		for(StringBatchUpdatable readout : readouts.getStringBatchUpdatables())
+		{
+			readout.update(strings, stringTimes, stringCount);
+		}
+		for(StringUpdatable readout : readouts.getPlainStringUpdatables())
+		{
+			for(int i = 0; i < stringCount; ++i)
+			{
+				readout.update(strings[i]);
+			}
+		}
+		// Drop the references so that the Strings can be collected
+		for(int i = 0; i < stringCount; ++i)
+		{
+			strings[i] = null;
+		}
+		stringCount = 0;
+	}
+}
@@ -6,7 +6,6 @@ import java.util.ArrayList;
 import java.util.List;
 import java.util.Scanner;
 
-import dashboard.readout.Readout;
 import dashboard.readout.StringUpdatable;
 
 /**
@@ -82,10 +81,9 @@ public class BufferGenerator extends Generator
 	 */
 	private void generate(String line)
 	{
-		for(String key : readouts.keySet())
+		for(StringUpdatable readout : readouts.getStringUpdatables())
 		{
-			Readout readout = readouts.get(key);
-			if(readout instanceof StringUpdatable) ((StringUpdatable)readout).update(line);
+			readout.update(line);
 		}
 	}
 	
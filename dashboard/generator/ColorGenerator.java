@@ -4,7 +4,6 @@ import java.awt.Color;
 import java.util.Random;
 
 import dashboard.readout.ColorUpdatable;
-import dashboard.readout.Readout;
 
 /**
  * Implements a Generator that generates random Colors. Intended to be used
@@ -99,14 +98,10 @@ public final class ColorGenerator extends Generator
 	@Override
 	public void generate()
 	{
-		for(String key : readouts.keySet())
+		for(ColorUpdatable readout : readouts.getColorUpdatables())
 		{
-			Readout readout = readouts.get(key);
-			if(readout instanceof ColorUpdatable)
-			{
-				Color color = ((mode == RGB) ? generateRandomColorRGB() : generateRandomColorHSB());
-				((ColorUpdatable)readout).update(color);
-			}
+			Color color = ((mode == RGB) ? generateRandomColorRGB() : generateRandomColorHSB());
+			readout.update(color);
 		}
 	}
 }
@@ -1,12 +1,15 @@
 package dashboard.generator;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+
 import dashboard.control.AuxArrowPad;
 import dashboard.control.ToggleButton;
 import dashboard.readout.BufferReadout;
 import dashboard.readout.LevelReadout;
 import dashboard.readout.LocationUpdatable;
-import dashboard.readout.Readout;
-import dashboard.util.GPointMath;
+import dashboard.util.ThreadMode;
 import acm.graphics.GPoint;
 
 /**
@@ -15,16 +18,86 @@ import acm.graphics.GPoint;
  * accurate simulation of motion, rather one that is relatively simple to implement and still has
  * good performance. In order to work, a DatumGenerator needs an ignition switch {@link ToggleButton ToggleButton}
  * and a controller {@link AuxArrowPad AuxArrowPad}.
+ * <p>
+ * The state of the ship is kept in primitive fields, so that a step of the physics engine does not
+ * allocate any objects. After each wakeup, the physics engine copies the state into a sequence-locked
+ * block, from which {@link #generate() generate} and the getters read a consistent state without ever
+ * blocking the physics engine.
+ * <p>
+ * The physics engine advances in fixed steps of simulated time, and runs as many steps as needed to
+ * keep up with the real time elapsed, as measured by System.nanoTime(). The Readouts are updated with
+ * a state interpolated between the last two steps, so that they move smoothly even if the Readouts are
+ * updated more often than the physics engine steps.
+ * <p>
+ * The physics engine only runs while the DatumGenerator is active and not paused (see {@link #setPaused(boolean) setPaused}),
+ * as a task on the same shared scheduler that drives the Generators. While it is stopped, simulated time is frozen,
+ * and no thread is used. A DatumGenerator that is no longer needed should be {@link #close() closed}.
+ * <p>
+ * The controls do not change the thrust directly. Instead, each button event is turned into a command
+ * on a lock-free queue, which the physics engine drains in order before each step. Commands therefore
+ * take effect within one step, and always in the order in which the events occurred.
+ * <p>
+ * Targets, such as the positions of {@link dashboard.readout.MinimapReadout MinimapReadout} pins or other bodies, can be
+ * registered with {@link #addTarget(String, double, double) addTarget}. After every step, the physics engine raises
+ * proximity and collision events for the targets near the ship (see {@link ProximityListener ProximityListener}).
+ * The targets are kept in a {@link dashboard.util.SpatialHash SpatialHash}, so the cost of a step depends on the
+ * number of targets near the ship rather than on the total number of targets.
+ * <p>
+ * The equations of motion can be integrated with several methods (see {@link #setIntegrator(int) setIntegrator}).
+ * The higher-order methods stay accurate at larger steps, which allows the physics engine to wake up
+ * less often (see {@link #setCalcInterval(int) setCalcInterval}).
+ * <p>
+ * A DatumGenerator can also be created without a physics thread (see {@link #DatumGenerator(int, boolean) DatumGenerator(int, boolean)}),
+ * in which case it is stepped as fast as possible by {@link #simulate(ThrustSchedule, long, StateSink) simulate}, driven by
+ * a {@link ThrustSchedule ThrustSchedule} instead of the controller. Both modes use the same step function, so
+ * the same sequence of thrusts and the same step size produce bit-identical states in either mode.
  * 
  * @author Mark Sabini
  *
  */
-public class DatumGenerator extends Generator
+public class DatumGenerator extends Generator implements AutoCloseable
 {
 	/**
-	 * How frequently the physics engine recalculates its state
+	 * Used to integrate the equations of motion with the explicit Euler method, which moves the ship
+	 * with the velocity from before the step. First-order accurate.
+	 */
+	public static final int EXPLICIT_EULER = 0;
+	
+	/**
+	 * Used to integrate the equations of motion with the semi-implicit Euler method, which updates the
+	 * velocity first and then moves the ship with the new velocity. First-order accurate, but more stable
+	 * than the explicit Euler method.
+	 */
+	public static final int SEMI_IMPLICIT_EULER = 1;
+	
+	/**
+	 * Used to integrate the equations of motion with the velocity Verlet method, which averages the
+	 * accelerations at the start and end of the step. Second-order accurate, at the cost of two
+	 * evaluations of the forces per step.
+	 */
+	public static final int VERLET = 2;
+	
+	/**
+	 * Used to integrate the equations of motion with the classical fourth-order Runge-Kutta method.
+	 * Fourth-order accurate, at the cost of four evaluations of the forces per step.
+	 */
+	public static final int RK4 = 3;
+	
+	/**
+	 * How frequently the physics engine recalculates its state by default, measured in milliseconds
 	 */
-	private static final int CALC_INTERVAL = 20;
+	private static final int DEFAULT_CALC_INTERVAL = 20;
+	
+	/**
+	 * How fast the heading changes per unit of rotational speed, measured in radians per second
+	 */
+	private static final double ROT_RATE = 0.25;
+	
+	/**
+	 * The maximum number of steps the physics engine runs per wakeup. If the engine falls further
+	 * behind than this, the remaining time is dropped rather than simulated.
+	 */
+	private static final int MAX_STEPS = 5;
 	
 	/**
 	 * Arbitrary constant representing resistive forces during translation
@@ -42,9 +115,24 @@ public class DatumGenerator extends Generator
 	private static final double MASS = 10.0;
 	
 	/**
-	 * Relative bearing, i.e. the direction the ship faces relative to itself (north)
+	 * Used in commands to change the thrust from the main engines
 	 */
-	private static final GPoint REL_BEARING = new GPoint(0, 1);
+	private static final int MAIN_ENGINES = 0;
+	
+	/**
+	 * Used in commands to change the thrust from the rotational engines
+	 */
+	private static final int ROT_ENGINES = 1;
+	
+	/**
+	 * The distance within which the ship is near a target by default
+	 */
+	private static final double DEFAULT_PROXIMITY_RADIUS = 50.0;
+	
+	/**
+	 * The distance within which the ship collides with a target by default
+	 */
+	private static final double DEFAULT_COLLISION_RADIUS = 5.0;
 	
 	/**
 	 * The default thrust supplied to the main engines if no LevelReadouts are connected
@@ -57,54 +145,160 @@ public class DatumGenerator extends Generator
 	private static final double DEFAULT_ROT_THRUST = 50.0;
 	
 	/**
-	 * Thrust vector relative to the ship itself
+	 * How frequently the physics engine recalculates its state, measured in milliseconds
 	 */
-	private GPoint relThrust;
+	private volatile int calcInterval = DEFAULT_CALC_INTERVAL;
 	
 	/**
-	 * Tangential thrust vector relative to the ground
+	 * The amount of simulated time advanced by each step of the physics engine, measured in nanoseconds
 	 */
-	private GPoint mainThrust;
+	private long stepNanos = DEFAULT_CALC_INTERVAL * 1000000L;
+	
+	/**
+	 * The method used to integrate the equations of motion
+	 */
+	private volatile int integrator = SEMI_IMPLICIT_EULER;
+	
+	/**
+	 * Thrust from the rotational engines, i.e. the x-component of the thrust relative to the ship itself
+	 */
+	private volatile double rotThrust;
+	
+	/**
+	 * Thrust from the main engines, i.e. the y-component of the thrust relative to the ship itself
+	 */
+	private volatile double mainThrust;
 	
 	/**
 	 * Current position of the ship
 	 */
-	private GPoint position;
+	private double x, y;
 	
 	/**
 	 * Current velocity of the ship
 	 */
-	private GPoint velocity;
+	private double vx, vy;
 	
 	/**
 	 * Current acceleration of the ship
 	 */
-	private GPoint acceleration;
+	private double ax, ay;
 	
 	/**
-	 * Current bearing of the ship
+	 * Current heading of the ship, measured in radians counterclockwise from the x-axis
 	 */
-	private GPoint bearing;
+	private double heading;
 	
 	/**
-	 * Current resistive forces acting on the ship
+	 * Current signed rotational speed of the ship
 	 */
-	private GPoint resistance;
+	private double rotSpeed;
 	
 	/**
-	 * Current signed rotational speed of the ship
+	 * The number of steps simulated since the state was initialized
 	 */
-	private double rotSpeed;
+	private long stepCount;
+	
+	/**
+	 * Whether the physics engine runs in step with real time while the DatumGenerator is active
+	 */
+	private final boolean realTime;
+	
+	/**
+	 * Whether the physics engine is currently running, i.e. whether simulated time is passing
+	 */
+	private boolean running;
+	
+	/**
+	 * Whether the physics engine is paused, which freezes simulated time even while the DatumGenerator is active
+	 */
+	private volatile boolean paused = false;
 	
 	/**
-	 * Current signed rotational acceleration of the ship
+	 * Whether the DatumGenerator has been closed
 	 */
-	private double rotAcceleration;
+	private volatile boolean closed = false;
 	
 	/**
-	 * Current rotational resistive forces acting on the ship
+	 * The task that is currently running the physics engine, or null if the physics engine is stopped
 	 */
-	private double rotResistance;
+	private PhysicsTask physicsTask;
+	
+	/**
+	 * The pending run of the physics task on the shared scheduler
+	 */
+	private ScheduledFuture<?> physicsFuture;
+	
+	/**
+	 * Position of the ship before the most recent step
+	 */
+	private double prevX, prevY;
+	
+	/**
+	 * Heading of the ship before the most recent step
+	 */
+	private double prevHeading;
+	
+	/**
+	 * The time of the most recent wakeup of the physics engine, as given by System.nanoTime()
+	 */
+	private long lastTime;
+	
+	/**
+	 * Real time that has elapsed but has not been simulated yet, measured in nanoseconds
+	 */
+	private long accumulator;
+	
+	/**
+	 * The acceleration computed by the most recent call to {@link #calcAcceleration(double, double, double, double) calcAcceleration}
+	 */
+	private double accX, accY;
+	
+	/**
+	 * Guards the working state of the ship, so that it is only ever stepped by one thread at a time
+	 */
+	private final Object stateLock = new Object();
+	
+	/**
+	 * The most recently published state of the ship, which readers use instead of the working state
+	 */
+	private final PublishedState published = new PublishedState();
+	
+	/**
+	 * Commands from the controls that the physics engine has not applied yet, in the order they were submitted
+	 */
+	private final ConcurrentLinkedQueue<ThrustCommand> commands = new ConcurrentLinkedQueue<ThrustCommand>();
+	
+	/**
+	 * The targets with which the ship can come near or collide
+	 */
+	private final ProximityTracker proximity = new ProximityTracker(DEFAULT_PROXIMITY_RADIUS, DEFAULT_COLLISION_RADIUS);
+	
+	/**
+	 * Proximity and collision events raised by the physics engine that have not been dispatched yet,
+	 * guarded by the state lock
+	 */
+	private final ProximityEvents pendingEvents = new ProximityEvents();
+	
+	/**
+	 * The events being dispatched, only used by the thread that is dispatching
+	 */
+	private final ProximityEvents dispatchedEvents = new ProximityEvents();
+	
+	/**
+	 * Whether a thread is dispatching proximity events, guarded by the state lock
+	 */
+	private boolean dispatching = false;
+	
+	/**
+	 * The listener notified of proximity and collision events, or null if there is none
+	 */
+	private volatile ProximityListener proximityListener;
+	
+	/**
+	 * Optional Readout on which proximity and collision alerts are printed
+	 */
+	private volatile BufferReadout alertReadout;
 	
 	/**
 	 * Controls that adjust the amount of thrust from the engines
@@ -134,10 +328,23 @@ public class DatumGenerator extends Generator
 	 * @param interval the time interval between updates, measured in milliseconds
 	 */
 	public DatumGenerator(int interval)
+	{
+		this(interval, true);
+	}
+	
+	/**
+	 * Creates a DatumGenerator with the specified timing interval, and specifies whether its physics
+	 * engine runs in real time. A DatumGenerator that does not run in real time never runs its physics
+	 * engine on its own, and its state only changes when {@link #simulate(ThrustSchedule, long, StateSink) simulate} is called.
+	 * 
+	 * @param interval the time interval between updates, measured in milliseconds
+	 * @param realTime whether the physics engine runs in step with real time while the DatumGenerator is active
+	 */
+	public DatumGenerator(int interval, boolean realTime)
 	{
 		super(interval);
+		this.realTime = realTime;
 		initState();
-		beginCalcState();
 	}
 	
 	/**
@@ -145,43 +352,200 @@ public class DatumGenerator extends Generator
 	 */
 	private void initState()
 	{
-		position = new GPoint(0, 0);
-		bearing = new GPoint(0, 1); // Initially facing north
-		velocity = new GPoint(0, 0);
-		acceleration = new GPoint(0, 0);
-		mainThrust = new GPoint(0, 0);
-		relThrust = new GPoint(0, 0);
-		rotSpeed = 0.0;
-		rotAcceleration = 0.0;	
+		synchronized(stateLock)
+		{
+			x = y = 0.0;
+			heading = Math.PI / 2; // Initially facing north
+			vx = vy = 0.0;
+			ax = ay = 0.0;
+			rotSpeed = 0.0;
+			prevX = prevY = 0.0;
+			prevHeading = heading;
+			stepCount = 0;
+			running = false;
+			lastTime = System.nanoTime();
+			accumulator = 0;
+			publishState();
+		}
+		rotThrust = mainThrust = 0.0;
 	}
 	
 	/**
-	 * Begins calculating the state of the ship. If calculations are interrupted,
-	 * a message will be printed to the console.
+	 * Sets whether the DatumGenerator is active. The physics engine starts and stops together with
+	 * the DatumGenerator, and simulated time is frozen while it is inactive.
+	 * 
+	 * @param flag whether the DatumGenerator should be active
+	 * @throws IllegalStateException if the DatumGenerator is activated after it has been closed
 	 */
-	private void beginCalcState()
+	@Override
+	public void setActive(boolean flag)
 	{
-		new Thread(new Runnable()
+		synchronized(this)
 		{
-			@Override
-			public void run()
-			{
-				while(!Thread.interrupted())
-				{	
-					try
-					{
-						recalcState();
-						Thread.sleep(CALC_INTERVAL);
-					}
-					catch(InterruptedException e)
-					{
-						System.out.println("Physics calculations have been interrupted!");
-						return;
-					}
-					
-				}
-			}
-		}).start();
+			if(flag && closed) throw new IllegalStateException();
+			super.setActive(flag);
+			updatePhysics();
+		}
+		dispatchProximityEvents();
+	}
+	
+	/**
+	 * Sets whether the physics engine is paused. While paused, simulated time is frozen: the ship stays
+	 * where it is, and no time is made up when the physics engine resumes. The Readouts keep being updated
+	 * as long as the DatumGenerator is active.
+	 * 
+	 * @param flag whether the physics engine should be paused
+	 */
+	public void setPaused(boolean flag)
+	{
+		synchronized(this)
+		{
+			paused = flag;
+			updatePhysics();
+		}
+		dispatchProximityEvents();
+	}
+	
+	/**
+	 * Returns whether the physics engine is paused.
+	 * 
+	 * @return whether the physics engine is paused
+	 */
+	public boolean isPaused()
+	{
+		return paused;
+	}
+	
+	/**
+	 * Deactivates the DatumGenerator and stops its physics engine for good. A closed DatumGenerator
+	 * cannot be activated again. Closing a DatumGenerator more than once has no effect.
+	 */
+	@Override
+	public void close()
+	{
+		synchronized(this)
+		{
+			closed = true;
+		}
+		setActive(false);
+	}
+	
+	/**
+	 * Returns whether the DatumGenerator has been closed.
+	 * 
+	 * @return whether the DatumGenerator has been closed
+	 */
+	public boolean isClosed()
+	{
+		return closed;
+	}
+	
+	/**
+	 * Starts or stops the physics engine, so that it runs exactly when the DatumGenerator runs in real
+	 * time, is active, is not paused, and has not been closed.
+	 */
+	private synchronized void updatePhysics()
+	{
+		boolean run = realTime && isActive() && !paused && !closed;
+		if(run && physicsTask == null) startPhysics();
+		else if(!run && physicsTask != null) stopPhysics();
+	}
+	
+	/**
+	 * Starts the physics engine on the shared scheduler. Simulated time resumes from where it was frozen.
+	 */
+	private synchronized void startPhysics()
+	{
+		synchronized(stateLock)
+		{
+			lastTime = System.nanoTime();
+			running = true;
+			publishState();
+		}
+		physicsTask = new PhysicsTask();
+		physicsFuture = getScheduler().schedule(physicsTask, 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Stops the physics engine, after simulating the time that has passed since its last wakeup.
+	 * A run of the physics task that is already in progress will not run again.
+	 */
+	private synchronized void stopPhysics()
+	{
+		physicsTask = null;
+		if(physicsFuture != null) physicsFuture.cancel(false);
+		physicsFuture = null;
+		synchronized(stateLock)
+		{
+			advance();
+			running = false;
+			publishState();
+		}
+	}
+	
+	/**
+	 * Schedules the next run of the given physics task, unless the physics engine has been stopped
+	 * (or stopped and started again) since the task was started.
+	 * 
+	 * @param task the task requesting to be rescheduled
+	 */
+	private synchronized void reschedulePhysics(PhysicsTask task)
+	{
+		if(physicsTask != task) return;
+		physicsFuture = getScheduler().schedule(task, calcInterval, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Sets the method used to integrate the equations of motion. The method must be one of
+	 * {@link #EXPLICIT_EULER EXPLICIT_EULER}, {@link #SEMI_IMPLICIT_EULER SEMI_IMPLICIT_EULER} (the default),
+	 * {@link #VERLET VERLET}, or {@link #RK4 RK4}.
+	 * 
+	 * @param integrator the method used to integrate the equations of motion
+	 * @throws IllegalArgumentException if an invalid method is specified
+	 */
+	public void setIntegrator(int integrator)
+	{
+		if(integrator < EXPLICIT_EULER || integrator > RK4) throw new IllegalArgumentException();
+		this.integrator = integrator;
+	}
+	
+	/**
+	 * Returns the method used to integrate the equations of motion.
+	 * 
+	 * @return the method used to integrate the equations of motion
+	 */
+	public int getIntegrator()
+	{
+		return integrator;
+	}
+	
+	/**
+	 * Sets how frequently the physics engine recalculates its state, which is also the amount of
+	 * simulated time advanced by each step. Larger intervals need fewer wakeups, but should be paired
+	 * with a higher-order integrator to stay accurate.
+	 * 
+	 * @param calcInterval the time interval between steps, measured in milliseconds
+	 * @throws IllegalArgumentException if the interval is not positive
+	 */
+	public void setCalcInterval(int calcInterval)
+	{
+		if(calcInterval <= 0) throw new IllegalArgumentException();
+		synchronized(stateLock)
+		{
+			this.calcInterval = calcInterval;
+			stepNanos = calcInterval * 1000000L;
+			publishState();
+		}
+	}
+	
+	/**
+	 * Returns how frequently the physics engine recalculates its state.
+	 * 
+	 * @return the time interval between steps, measured in milliseconds
+	 */
+	public int getCalcInterval()
+	{
+		return calcInterval;
 	}
 	
 	/**
@@ -191,17 +555,39 @@ public class DatumGenerator extends Generator
 	 */
 	public void setEngineThrust(GPoint relThrust)
 	{
-		this.relThrust = relThrust;
+		setEngineThrust(relThrust.getX(), relThrust.getY());
+	}
+	
+	/**
+	 * Specifies the thrust from the engines relative to the ship itself.
+	 * 
+	 * @param rotThrust the thrust from the rotational engines, positive to turn counterclockwise
+	 * @param mainThrust the thrust from the main engines, positive to move forward
+	 */
+	public void setEngineThrust(double rotThrust, double mainThrust)
+	{
+		this.rotThrust = rotThrust;
+		this.mainThrust = mainThrust;
+	}
+	
+	/**
+	 * Specifies the thrust from the rotational engines, leaving the main engines unchanged.
+	 * 
+	 * @param rotThrust the thrust from the rotational engines, positive to turn counterclockwise
+	 */
+	public void setRotThrust(double rotThrust)
+	{
+		this.rotThrust = rotThrust;
 	}
 	
 	/**
-	 * Recalculates the thrust, and translates the thrust relative to the ship to one
-	 * relative to the ground
+	 * Specifies the thrust from the main engines, leaving the rotational engines unchanged.
+	 * 
+	 * @param mainThrust the thrust from the main engines, positive to move forward
 	 */
-	private void recalcThrust()
+	public void setMainThrust(double mainThrust)
 	{
-		double angleOffset = GPointMath.angleBetween(REL_BEARING, bearing);
-		mainThrust = GPointMath.rot(new GPoint(0.0, relThrust.getY()), angleOffset);
+		this.mainThrust = mainThrust;
 	}
 	
 	/**
@@ -211,7 +597,13 @@ public class DatumGenerator extends Generator
 	 */
 	public GPoint getAcceleration()
 	{
-		return acceleration;
+		PublishedState published = this.published;
+		while(true)
+		{
+			long seq = published.seq;
+			double ax = published.ax, ay = published.ay;
+			if((seq & 1) == 0 && published.seq == seq) return new GPoint(ax, ay);
+		}
 	}
 	
 	/**
@@ -221,29 +613,445 @@ public class DatumGenerator extends Generator
 	 */
 	public GPoint getVelocity()
 	{
-		return velocity;
+		PublishedState published = this.published;
+		while(true)
+		{
+			long seq = published.seq;
+			double vx = published.vx, vy = published.vy;
+			if((seq & 1) == 0 && published.seq == seq) return new GPoint(vx, vy);
+		}
+	}
+	
+	/**
+	 * Advances the physics engine by as many fixed steps as fit in the real time elapsed since the
+	 * previous wakeup, up to {@link #MAX_STEPS MAX_STEPS}. The leftover time is carried over to the next wakeup.
+	 * If the physics engine is not running, no time is simulated. Proximity events raised by the steps are
+	 * left pending, to be sent by {@link #dispatchProximityEvents() dispatchProximityEvents} once the caller
+	 * holds no locks.
+	 */
+	private void advance()
+	{
+		synchronized(stateLock)
+		{
+			if(!running) return;
+			long now = System.nanoTime();
+			accumulator += now - lastTime;
+			lastTime = now;
+			int steps = 0;
+			while(accumulator >= stepNanos && steps < MAX_STEPS)
+			{
+				applyCommands();
+				prevX = x;
+				prevY = y;
+				prevHeading = heading;
+				recalcState(stepNanos / 1e9);
+				proximity.check(x, y, pendingEvents);
+				++stepCount;
+				accumulator -= stepNanos;
+				++steps;
+			}
+			// Drop whole steps that could not be simulated, so that the engine does not spiral further behind
+			if(accumulator >= stepNanos) accumulator %= stepNanos;
+			publishState();
+		}
+	}
+	
+	/**
+	 * Sends the pending proximity events to the listener and the alert readout. Must be called while
+	 * holding no locks, so that the listener and the Readout are free to call back into the DatumGenerator.
+	 * Only one thread dispatches at a time, so events are always sent in the order they were raised; a
+	 * thread that finds another one dispatching leaves its events for that thread to send.
+	 */
+	private void dispatchProximityEvents()
+	{
+		while(true)
+		{
+			synchronized(stateLock)
+			{
+				if(dispatching || pendingEvents.isEmpty()) return;
+				dispatching = true;
+				pendingEvents.moveTo(dispatchedEvents);
+			}
+			try
+			{
+				dispatchedEvents.dispatch(proximityListener, alertReadout);
+			}
+			finally
+			{
+				synchronized(stateLock)
+				{
+					dispatching = false;
+				}
+			}
+		}
+	}
+	
+	/**
+	 * Submits a command from the controls to change the thrust from the specified engines. The command
+	 * is applied by the physics engine before its next step.
+	 * 
+	 * @param engines the engines whose thrust should change, either MAIN_ENGINES or ROT_ENGINES
+	 * @param thrust the new thrust from the engines
+	 */
+	private void submitThrust(int engines, double thrust)
+	{
+		commands.add(new ThrustCommand(engines, thrust));
+	}
+	
+	/**
+	 * Applies all the pending commands from the controls, in the order they were submitted.
+	 */
+	private void applyCommands()
+	{
+		ThrustCommand command;
+		while((command = commands.poll()) != null)
+		{
+			if(command.engines == MAIN_ENGINES) mainThrust = command.thrust;
+			else rotThrust = command.thrust;
+		}
+	}
+	
+	/**
+	 * Copies the working state of the ship into the published state. The sequence number is odd while
+	 * the copy is in progress, so that readers can detect and retry a read that overlapped it. Must be
+	 * called while holding the state lock.
+	 */
+	private void publishState()
+	{
+		PublishedState published = this.published;
+		long seq = published.seq;
+		published.seq = seq + 1;
+		published.x = x;
+		published.y = y;
+		published.prevX = prevX;
+		published.prevY = prevY;
+		published.heading = heading;
+		published.prevHeading = prevHeading;
+		published.vx = vx;
+		published.vy = vy;
+		published.ax = ax;
+		published.ay = ay;
+		published.rotSpeed = rotSpeed;
+		published.stepCount = stepCount;
+		published.time = lastTime;
+		published.accumulator = accumulator;
+		published.stepNanos = stepNanos;
+		published.running = running;
+		published.seq = seq + 2;
+	}
+	
+	/**
+	 * Recalculates the state of the ship based on the engines' thrust, using the current integrator.
+	 * The main engines push the ship along its heading, and the heading turns with the rotational speed.
+	 * 
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 */
+	private void recalcState(double dt)
+	{
+		synchronized(stateLock)
+		{
+			recalcState(dt, mainThrust, rotThrust, integrator);
+		}
+	}
+	
+	/**
+	 * Recalculates the state of the ship based on the specified thrust, using the specified integrator.
+	 * Must be called while holding the state lock.
+	 * 
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 * @param mainThrust the thrust from the main engines
+	 * @param rotThrust the thrust from the rotational engines
+	 * @param integrator the method used to integrate the equations of motion
+	 */
+	private void recalcState(double dt, double mainThrust, double rotThrust, int integrator)
+	{
+		calcAcceleration(vx, vy, heading, mainThrust);
+		ax = accX;
+		ay = accY;
+		if(integrator == EXPLICIT_EULER) stepExplicitEuler(dt, rotThrust);
+		else if(integrator == VERLET) stepVerlet(dt, mainThrust, rotThrust);
+		else if(integrator == RK4) stepRK4(dt, mainThrust, rotThrust);
+		else stepSemiImplicitEuler(dt, rotThrust);
+	}
+	
+	/**
+	 * Runs the physics engine for the specified number of steps as fast as possible, without waiting
+	 * for real time to pass. The thrust for each step is taken from the schedule, which is indexed by
+	 * the number of steps simulated since the state was initialized, and the state after each step is
+	 * passed to the sink. Each step advances the simulated time by the {@link #setCalcInterval(int) calculation interval}.
+	 * <p>
+	 * The ship continues from its current state, so consecutive calls behave like a single longer run.
+	 * When the run finishes, the engines are left with the thrust of the last step.
+	 * 
+	 * @param schedule the thrust from the engines during each step
+	 * @param steps the number of steps to simulate
+	 * @param sink the receiver of the state after each step, or null to discard it
+	 * @throws IllegalStateException if the physics engine runs in real time
+	 */
+	public void simulate(ThrustSchedule schedule, long steps, StateSink sink)
+	{
+		if(realTime) throw new IllegalStateException();
+		int integrator = this.integrator;
+		double mainThrust = this.mainThrust, rotThrust = this.rotThrust;
+		synchronized(stateLock)
+		{
+			double dt = stepNanos / 1e9;
+			for(long i = 0; i < steps; ++i)
+			{
+				rotThrust = schedule.getRotThrust(stepCount);
+				mainThrust = schedule.getMainThrust(stepCount);
+				prevX = x;
+				prevY = y;
+				prevHeading = heading;
+				recalcState(dt, mainThrust, rotThrust, integrator);
+				proximity.check(x, y, pendingEvents);
+				if(sink != null) sink.accept(stepCount, x, y, Math.cos(heading), Math.sin(heading), Math.sqrt(vx * vx + vy * vy), rotSpeed);
+				++stepCount;
+			}
+			publishState();
+		}
+		dispatchProximityEvents();
+		setEngineThrust(rotThrust, mainThrust);
+	}
+	
+	/**
+	 * Adds a target with the specified key at the specified position, or moves the target if it already
+	 * exists. To be alerted when the ship comes near a {@link dashboard.readout.MinimapReadout MinimapReadout} pin,
+	 * add a target with the same key and position as the pin. Moving targets can be moved every step.
+	 * 
+	 * @param key a handle that refers to the target
+	 * @param x the x-coordinate of the target
+	 * @param y the y-coordinate of the target
+	 */
+	public void addTarget(String key, double x, double y)
+	{
+		proximity.putTarget(key, x, y);
+	}
+	
+	/**
+	 * Removes the target with the specified key, without raising any events. If the target could not
+	 * be found, no action is taken.
+	 * 
+	 * @param key the key that was bound to the target in {@link #addTarget(String, double, double) addTarget}
+	 */
+	public void removeTarget(String key)
+	{
+		proximity.removeTarget(key);
+	}
+	
+	/**
+	 * Returns the number of targets.
+	 * 
+	 * @return the number of targets
+	 */
+	public int getTargetCount()
+	{
+		return proximity.getTargetCount();
+	}
+	
+	/**
+	 * Sets the distance within which the ship is near a target. Changing the radius rebuilds the spatial
+	 * hash of the targets, so it should not be done every step.
+	 * 
+	 * @param proximityRadius the distance within which the ship is near a target
+	 * @throws IllegalArgumentException if the radius is not positive
+	 */
+	public void setProximityRadius(double proximityRadius)
+	{
+		if(!(proximityRadius > 0.0)) throw new IllegalArgumentException();
+		proximity.setProximityRadius(proximityRadius);
+	}
+	
+	/**
+	 * Returns the distance within which the ship is near a target.
+	 * 
+	 * @return the proximity radius
+	 */
+	public double getProximityRadius()
+	{
+		return proximity.getProximityRadius();
 	}
 	
 	/**
-	 * Recalculates the state of the ship based on the engines' thrust
+	 * Sets the distance within which the ship collides with a target. Collisions are only detected with
+	 * targets that are also within the proximity radius.
+	 * 
+	 * @param collisionRadius the distance within which the ship collides with a target
+	 * @throws IllegalArgumentException if the radius is negative
+	 */
+	public void setCollisionRadius(double collisionRadius)
+	{
+		if(!(collisionRadius >= 0.0)) throw new IllegalArgumentException();
+		proximity.setCollisionRadius(collisionRadius);
+	}
+	
+	/**
+	 * Returns the distance within which the ship collides with a target.
+	 * 
+	 * @return the collision radius
+	 */
+	public double getCollisionRadius()
+	{
+		return proximity.getCollisionRadius();
+	}
+	
+	/**
+	 * Sets the listener notified when the ship comes near, leaves, or collides with a target. A DatumGenerator
+	 * can only have one listener.
+	 * 
+	 * @param listener the listener to notify, or null to notify none
 	 */
-	private void recalcState()
+	public void setProximityListener(ProximityListener listener)
 	{
-		recalcThrust();
-		resistance = GPointMath.scale(velocity, -RESISTANCE_COEFF * GPointMath.norm(velocity));
-		acceleration = GPointMath.scale(GPointMath.sum(mainThrust, resistance), 1.0 / MASS);
-		velocity = GPointMath.sum(velocity, GPointMath.scale(getAcceleration(), CALC_INTERVAL / 1000.0));
-		position = GPointMath.sum(position, GPointMath.scale(getVelocity(), CALC_INTERVAL / 1000.0));
+		proximityListener = listener;
+	}
+	
+	/**
+	 * Returns the number of steps the physics engine has simulated since it was created.
+	 * 
+	 * @return the number of steps simulated so far
+	 */
+	public long getStepCount()
+	{
+		PublishedState published = this.published;
+		while(true)
+		{
+			long seq = published.seq;
+			long stepCount = published.stepCount;
+			if((seq & 1) == 0 && published.seq == seq) return stepCount;
+		}
+	}
+	
+	/**
+	 * Advances the state with the explicit Euler method. The acceleration at the start of the step
+	 * must already be stored in ax and ay.
+	 * 
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 * @param rotThrust the thrust from the rotational engines
+	 */
+	private void stepExplicitEuler(double dt, double rotThrust)
+	{
+		x += vx * dt;
+		y += vy * dt;
+		vx += ax * dt;
+		vy += ay * dt;
+		heading += ROT_RATE * rotSpeed * dt;
+		rotSpeed += calcRotAcceleration(rotSpeed, rotThrust) * dt;
+	}
+	
+	/**
+	 * Advances the state with the semi-implicit Euler method. The acceleration at the start of the step
+	 * must already be stored in ax and ay.
+	 * 
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 * @param rotThrust the thrust from the rotational engines
+	 */
+	private void stepSemiImplicitEuler(double dt, double rotThrust)
+	{
+		vx += ax * dt;
+		vy += ay * dt;
+		x += vx * dt;
+		y += vy * dt;
+		rotSpeed += calcRotAcceleration(rotSpeed, rotThrust) * dt;
+		heading += ROT_RATE * rotSpeed * dt;
+	}
+	
+	/**
+	 * Advances the state with the velocity Verlet method. Since the resistive forces depend on the
+	 * velocity, the acceleration at the end of the step is evaluated at a predicted end velocity, and the
+	 * velocity is then corrected with the average of both accelerations, as in Heun's method. The
+	 * acceleration at the start of the step must already be stored in ax and ay.
+	 * 
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 * @param mainThrust the thrust from the main engines
+	 * @param rotThrust the thrust from the rotational engines
+	 */
+	private void stepVerlet(double dt, double mainThrust, double rotThrust)
+	{
+		double rotAcc = calcRotAcceleration(rotSpeed, rotThrust);
+		x += (vx + 0.5 * ax * dt) * dt;
+		y += (vy + 0.5 * ay * dt) * dt;
+		heading += ROT_RATE * (rotSpeed + 0.5 * rotAcc * dt) * dt;
+		calcAcceleration(vx + ax * dt, vy + ay * dt, heading, mainThrust);
+		vx += 0.5 * (ax + accX) * dt;
+		vy += 0.5 * (ay + accY) * dt;
+		rotSpeed += 0.5 * (rotAcc + calcRotAcceleration(rotSpeed + rotAcc * dt, rotThrust)) * dt;
+	}
+	
+	/**
+	 * Advances the state with the classical fourth-order Runge-Kutta method. The acceleration at the
+	 * start of the step must already be stored in ax and ay.
+	 * 
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 * @param mainThrust the thrust from the main engines
+	 * @param rotThrust the thrust from the rotational engines
+	 */
+	private void stepRK4(double dt, double mainThrust, double rotThrust)
+	{
+		double halfDt = 0.5 * dt;
+		double rotAcc1 = calcRotAcceleration(rotSpeed, rotThrust);
 		
-		rotResistance = -ROT_RESISTANCE_COEFF * rotSpeed * Math.abs(rotSpeed);
-		rotAcceleration = relThrust.getX() + rotResistance;
-		rotSpeed += rotAcceleration * CALC_INTERVAL / 1000.0;
-		bearing = GPointMath.rot(bearing, rotSpeed / 200.0);
+		// Second evaluation, at the midpoint using the first
+		double vx2 = vx + halfDt * ax, vy2 = vy + halfDt * ay;
+		double rotSpeed2 = rotSpeed + halfDt * rotAcc1;
+		calcAcceleration(vx2, vy2, heading + halfDt * ROT_RATE * rotSpeed, mainThrust);
+		double ax2 = accX, ay2 = accY;
+		double rotAcc2 = calcRotAcceleration(rotSpeed2, rotThrust);
+		
+		// Third evaluation, at the midpoint using the second
+		double vx3 = vx + halfDt * ax2, vy3 = vy + halfDt * ay2;
+		double rotSpeed3 = rotSpeed + halfDt * rotAcc2;
+		calcAcceleration(vx3, vy3, heading + halfDt * ROT_RATE * rotSpeed2, mainThrust);
+		double ax3 = accX, ay3 = accY;
+		double rotAcc3 = calcRotAcceleration(rotSpeed3, rotThrust);
+		
+		// Fourth evaluation, at the end using the third
+		double vx4 = vx + dt * ax3, vy4 = vy + dt * ay3;
+		double rotSpeed4 = rotSpeed + dt * rotAcc3;
+		calcAcceleration(vx4, vy4, heading + dt * ROT_RATE * rotSpeed3, mainThrust);
+		double rotAcc4 = calcRotAcceleration(rotSpeed4, rotThrust);
+		
+		double sixthDt = dt / 6.0;
+		x += sixthDt * (vx + 2 * vx2 + 2 * vx3 + vx4);
+		y += sixthDt * (vy + 2 * vy2 + 2 * vy3 + vy4);
+		heading += sixthDt * ROT_RATE * (rotSpeed + 2 * rotSpeed2 + 2 * rotSpeed3 + rotSpeed4);
+		vx += sixthDt * (ax + 2 * ax2 + 2 * ax3 + accX);
+		vy += sixthDt * (ay + 2 * ay2 + 2 * ay3 + accY);
+		rotSpeed += sixthDt * (rotAcc1 + 2 * rotAcc2 + 2 * rotAcc3 + rotAcc4);
+	}
+	
+	/**
+	 * Calculates the acceleration of the ship for the specified velocity and heading, and stores it in
+	 * accX and accY.
+	 * 
+	 * @param vx the x-component of the velocity
+	 * @param vy the y-component of the velocity
+	 * @param heading the heading, measured in radians counterclockwise from the x-axis
+	 * @param mainThrust the thrust from the main engines
+	 */
+	private void calcAcceleration(double vx, double vy, double heading, double mainThrust)
+	{
+		double resistanceFactor = -RESISTANCE_COEFF * Math.sqrt(vx * vx + vy * vy);
+		accX = (mainThrust * Math.cos(heading) + resistanceFactor * vx) / MASS;
+		accY = (mainThrust * Math.sin(heading) + resistanceFactor * vy) / MASS;
+	}
+	
+	/**
+	 * Calculates the rotational acceleration of the ship for the specified rotational speed.
+	 * 
+	 * @param rotSpeed the signed rotational speed
+	 * @param rotThrust the thrust from the rotational engines
+	 * @return the signed rotational acceleration
+	 */
+	private static double calcRotAcceleration(double rotSpeed, double rotThrust)
+	{
+		return rotThrust - ROT_RESISTANCE_COEFF * rotSpeed * Math.abs(rotSpeed);
 	}
 	
 	/**
 	 * Sets an auxiliary arrow pad to control the DatumGenerator. A DatumGenerator
-	 * can only have one controller.
+	 * can only have one controller. The arrow buttons are switched to {@link ThreadMode#INLINE ThreadMode.INLINE},
+	 * since their actions only submit commands to the physics engine.
 	 * 
 	 * @param controller the auxiliary arrow pad that will control the DatumGenerator
 	 */
@@ -253,6 +1061,10 @@ public class DatumGenerator extends Generator
 		ToggleButton revButton = (ToggleButton)controller.getButton(1, 1);
 		ToggleButton leftButton = (ToggleButton)controller.getButton(1, 0);
 		ToggleButton rightButton = (ToggleButton)controller.getButton(1, 2);
+		fwdButton.setThreadMode(ThreadMode.INLINE);
+		revButton.setThreadMode(ThreadMode.INLINE);
+		leftButton.setThreadMode(ThreadMode.INLINE);
+		rightButton.setThreadMode(ThreadMode.INLINE);
 		
 		fwdButton.setOnAction(new Runnable()
 		{
@@ -261,8 +1073,8 @@ public class DatumGenerator extends Generator
 			{
 				if(revButton.isOn()) revButton.setOn(false);
 				if(!ignitionSwitch.isOn()) return;
-				if(mainThrustSource == null) setEngineThrust(new GPoint(relThrust.getX(), DEFAULT_MAIN_THRUST));
-				else setEngineThrust(new GPoint(relThrust.getX(), mainThrustSource.getValue()));
+				if(mainThrustSource == null) submitThrust(MAIN_ENGINES, DEFAULT_MAIN_THRUST);
+				else submitThrust(MAIN_ENGINES, mainThrustSource.getValue());
 			}
 		});
 		fwdButton.setOffAction(new Runnable()
@@ -271,7 +1083,7 @@ public class DatumGenerator extends Generator
 			public void run()
 			{
 				if(!ignitionSwitch.isOn()) return;
-				if(!revButton.isOn()) setEngineThrust(new GPoint(relThrust.getX(), 0.0));
+				if(!revButton.isOn()) submitThrust(MAIN_ENGINES, 0.0);
 			}
 		});
 		
@@ -282,8 +1094,8 @@ public class DatumGenerator extends Generator
 			{
 				if(fwdButton.isOn()) fwdButton.setOn(false);
 				if(!ignitionSwitch.isOn()) return;
-				if(mainThrustSource == null) setEngineThrust(new GPoint(relThrust.getX(), -DEFAULT_MAIN_THRUST));
-				else setEngineThrust(new GPoint(relThrust.getX(), -mainThrustSource.getValue()));
+				if(mainThrustSource == null) submitThrust(MAIN_ENGINES, -DEFAULT_MAIN_THRUST);
+				else submitThrust(MAIN_ENGINES, -mainThrustSource.getValue());
 			}
 		});
 		revButton.setOffAction(new Runnable()
@@ -292,7 +1104,7 @@ public class DatumGenerator extends Generator
 			public void run()
 			{
 				if(!ignitionSwitch.isOn()) return;
-				if(!fwdButton.isOn()) setEngineThrust(new GPoint(relThrust.getX(), 0.0));
+				if(!fwdButton.isOn()) submitThrust(MAIN_ENGINES, 0.0);
 			}
 		});
 		
@@ -303,8 +1115,8 @@ public class DatumGenerator extends Generator
 			{
 				if(rightButton.isOn()) rightButton.setOn(false);
 				if(!ignitionSwitch.isOn()) return;
-				if(rotThrustSource == null) setEngineThrust(new GPoint(DEFAULT_ROT_THRUST, relThrust.getY()));
-				else setEngineThrust(new GPoint(rotThrustSource.getValue(), relThrust.getY()));
+				if(rotThrustSource == null) submitThrust(ROT_ENGINES, DEFAULT_ROT_THRUST);
+				else submitThrust(ROT_ENGINES, rotThrustSource.getValue());
 			}
 		});
 		leftButton.setOffAction(new Runnable()
@@ -313,7 +1125,7 @@ public class DatumGenerator extends Generator
 			public void run()
 			{
 				if(!ignitionSwitch.isOn()) return;
-				if(!rightButton.isOn()) setEngineThrust(new GPoint(0.0, relThrust.getY()));
+				if(!rightButton.isOn()) submitThrust(ROT_ENGINES, 0.0);
 			}
 		});
 		
@@ -324,8 +1136,8 @@ public class DatumGenerator extends Generator
 			{
 				if(leftButton.isOn()) leftButton.setOn(false);
 				if(!ignitionSwitch.isOn()) return;
-				if(rotThrustSource == null) setEngineThrust(new GPoint(-DEFAULT_ROT_THRUST, relThrust.getY()));
-				else setEngineThrust(new GPoint(-rotThrustSource.getValue(), relThrust.getY()));
+				if(rotThrustSource == null) submitThrust(ROT_ENGINES, -DEFAULT_ROT_THRUST);
+				else submitThrust(ROT_ENGINES, -rotThrustSource.getValue());
 			}
 		});
 		rightButton.setOffAction(new Runnable()
@@ -334,7 +1146,7 @@ public class DatumGenerator extends Generator
 			public void run()
 			{
 				if(!ignitionSwitch.isOn()) return;
-				if(!leftButton.isOn()) setEngineThrust(new GPoint(0.0, relThrust.getY()));
+				if(!leftButton.isOn()) submitThrust(ROT_ENGINES, 0.0);
 			}
 		});
 	}
@@ -383,6 +1195,16 @@ public class DatumGenerator extends Generator
 		this.yBearingReadout = yBearingReadout;
 	}
 	
+	/**
+	 * Sets where proximity and collision alerts will be output.
+	 * 
+	 * @param alertReadout the Readout that will display the alerts
+	 */
+	public void setAlertReadout(BufferReadout alertReadout)
+	{
+		this.alertReadout = alertReadout;
+	}
+	
 	/**
 	 * Sets where the speed and rotational speed will be output.
 	 * 
@@ -396,19 +1218,22 @@ public class DatumGenerator extends Generator
 	}
 	
 	/**
-	 * Sets the ignition switch that will turn the engine on and off.
+	 * Sets the ignition switch that will turn the engine on and off. Turning the engine off submits
+	 * a command to cut the thrust from all engines.
 	 * 
 	 * @param ignitionSwitch the ignition switch that will turn the engine on and off
 	 */
 	public void setIgnitionSwitch(ToggleButton ignitionSwitch)
 	{
 		this.ignitionSwitch = ignitionSwitch;
+		ignitionSwitch.setThreadMode(ThreadMode.INLINE);
 		ignitionSwitch.setOffAction(new Runnable()
 		{
 			@Override
 			public void run()
 			{
-				setEngineThrust(new GPoint(0.0, 0.0));
+				submitThrust(MAIN_ENGINES, 0.0);
+				submitThrust(ROT_ENGINES, 0.0);
 			}
 		});
 	}
@@ -425,19 +1250,149 @@ public class DatumGenerator extends Generator
 	@Override
 	public void generate()
 	{
+		PublishedState published = this.published;
+		double x, y, prevX, prevY, heading, prevHeading, vx, vy, rotSpeed;
+		long time, accumulator, stepNanos;
+		boolean running;
+		while(true)
+		{
+			long seq = published.seq;
+			x = published.x;
+			y = published.y;
+			prevX = published.prevX;
+			prevY = published.prevY;
+			heading = published.heading;
+			prevHeading = published.prevHeading;
+			vx = published.vx;
+			vy = published.vy;
+			rotSpeed = published.rotSpeed;
+			time = published.time;
+			accumulator = published.accumulator;
+			stepNanos = published.stepNanos;
+			running = published.running;
+			if((seq & 1) == 0 && published.seq == seq) break; // Retry if the physics engine published meanwhile
+		}
+		// How far the current time is between the last two steps
+		double alpha;
+		if(!realTime) alpha = 1.0; // Without real time, the latest step is shown
+		else if(running) alpha = (double)(accumulator + System.nanoTime() - time) / stepNanos;
+		else alpha = (double)accumulator / stepNanos; // Simulated time is frozen where the engine stopped
+		if(alpha > 1.0) alpha = 1.0;
+		GPoint position = new GPoint(prevX + (x - prevX) * alpha, prevY + (y - prevY) * alpha);
+		double angle = prevHeading + (heading - prevHeading) * alpha;
+		GPoint bearing = new GPoint(Math.cos(angle), Math.sin(angle));
+		double speed = Math.sqrt(vx * vx + vy * vy);
 		if(xPositionReadout != null) xPositionReadout.update(Double.toString(position.getX()));
 		if(yPositionReadout != null) yPositionReadout.update(Double.toString(position.getY()));
 		if(xBearingReadout != null) xBearingReadout.update(Double.toString(bearing.getX()));
 		if(yBearingReadout != null) yBearingReadout.update(Double.toString(bearing.getY()));
-		if(speedReadout != null) speedReadout.update(GPointMath.norm(velocity));
+		if(speedReadout != null) speedReadout.update(speed);
 		if(rotSpeedReadout != null) rotSpeedReadout.update(Math.abs(rotSpeed));
-		for(String key : readouts.keySet())
+		for(LocationUpdatable readout : readouts.getLocationUpdatables())
 		{
-			Readout readout = readouts.get(key);
-			if(readout instanceof LocationUpdatable)
-			{
-				((LocationUpdatable)readout).update(position, bearing);
-			}
+			readout.update(position, bearing);
+		}
+	}
+	
+	/**
+	 * Holds a copy of the state of the ship that can be read while the physics engine is stepping.
+	 * The fields are only written by {@link DatumGenerator#publishState() publishState}, which makes
+	 * the sequence number odd while it writes. A reader reads the sequence number, then the fields,
+	 * then the sequence number again, and only keeps what it read if the sequence number was even and
+	 * did not change. Every field is volatile, so the fields cannot be reordered around the sequence number.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class PublishedState
+	{
+		/**
+		 * Incremented before and after each publication, so that it is odd while one is in progress
+		 */
+		private volatile long seq;
+		
+		/**
+		 * Position of the ship after the most recent step and the step before it
+		 */
+		private volatile double x, y, prevX, prevY;
+		
+		/**
+		 * Heading of the ship after the most recent step and the step before it
+		 */
+		private volatile double heading, prevHeading;
+		
+		/**
+		 * Velocity and acceleration of the ship
+		 */
+		private volatile double vx, vy, ax, ay;
+		
+		/**
+		 * Signed rotational speed of the ship
+		 */
+		private volatile double rotSpeed;
+		
+		/**
+		 * The number of steps simulated since the state was initialized
+		 */
+		private volatile long stepCount;
+		
+		/**
+		 * The time of the wakeup that was published, the leftover real time, and the step size, measured in nanoseconds
+		 */
+		private volatile long time, accumulator, stepNanos;
+		
+		/**
+		 * Whether the physics engine was running when the state was published
+		 */
+		private volatile boolean running;
+	}
+	
+	/**
+	 * A command from the controls to change the thrust from one set of engines.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class ThrustCommand
+	{
+		/**
+		 * The engines whose thrust should change, either MAIN_ENGINES or ROT_ENGINES
+		 */
+		private final int engines;
+		
+		/**
+		 * The new thrust from the engines
+		 */
+		private final double thrust;
+		
+		/**
+		 * Creates a ThrustCommand.
+		 * 
+		 * @param engines the engines whose thrust should change
+		 * @param thrust the new thrust from the engines
+		 */
+		private ThrustCommand(int engines, double thrust)
+		{
+			this.engines = engines;
+			this.thrust = thrust;
+		}
+	}
+	
+	/**
+	 * A single run of the physics engine. Each run advances the physics engine to the current time, and
+	 * then reschedules itself on the shared scheduler after the calculation interval.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private class PhysicsTask implements Runnable
+	{
+		@Override
+		public void run()
+		{
+			advance();
+			dispatchProximityEvents();
+			reschedulePhysics(this);
 		}
 	}
 
@@ -0,0 +1,535 @@
+package dashboard.generator;
+
+import java.awt.Color;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+
+import dashboard.readout.CompassReadout;
+import dashboard.readout.LocationUpdatable;
+import dashboard.readout.MinimapReadout;
+import dashboard.util.CoordinateArrays;
+import acm.graphics.GPoint;
+
+/**
+ * Implements a Generator that simulates a fleet of bodies, such as escorts, debris, or contacts, with
+ * the same physics model as the {@link DatumGenerator DatumGenerator}. Each time the FleetGenerator updates,
+ * it advances every body by one step of its interval and publishes the result as a {@link FleetSnapshot FleetSnapshot}.
+ * <p>
+ * The state of the fleet is kept in primitive arrays rather than in one object per body. Large fleets
+ * are stepped in parallel on the common {@link ForkJoinPool ForkJoinPool}, while small fleets are stepped
+ * on the Generator's own thread.
+ * <p>
+ * Bodies can be shown as pins on {@link MinimapReadout MinimapReadouts} (see {@link #bindMinimap(MinimapReadout, Color) bindMinimap})
+ * and as goals of {@link CompassReadout CompassReadouts} (see {@link #bindGoal(int, CompassReadout) bindGoal}).
+ * The position and bearing of one tracked body (see {@link #setTrackedBody(int) setTrackedBody}) are sent
+ * to the FleetGenerator's {@link LocationUpdatable LocationUpdatables}.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class FleetGenerator extends Generator
+{
+	/**
+	 * The default maximum number of bodies in a fleet
+	 */
+	public static final int DEFAULT_CAPACITY = 4096;
+	
+	/**
+	 * The number of bodies below which a fleet is stepped on a single thread
+	 */
+	private static final int PARALLEL_THRESHOLD = 1024;
+	
+	/**
+	 * Arbitrary constant representing resistive forces during translation
+	 */
+	private static final double RESISTANCE_COEFF = 2.0;
+	
+	/**
+	 * Arbitrary constant representing resistive forces during rotation
+	 */
+	private static final double ROT_RESISTANCE_COEFF = 2.0;
+	
+	/**
+	 * Arbitrary constant that affects how difficult it is to move a body
+	 */
+	private static final double MASS = 10.0;
+	
+	/**
+	 * How fast the heading changes per unit of rotational speed, measured in radians per second
+	 */
+	private static final double ROT_RATE = 0.25;
+	
+	/**
+	 * The three snapshots that are stepped and published. Each update steps into the two snapshots that
+	 * were not published last, so it never overwrites the snapshot published by the update before it.
+	 */
+	private final FleetSnapshot[] snapshots;
+	
+	/**
+	 * The most recently published snapshot
+	 */
+	private volatile FleetSnapshot latest;
+	
+	/**
+	 * The index in {@link #snapshots snapshots} of the most recently published snapshot
+	 */
+	private int latestIndex;
+	
+	/**
+	 * The number of bodies in the fleet, including bodies added since the last tick
+	 */
+	private int count;
+	
+	/**
+	 * The tick of the most recently published snapshot
+	 */
+	private volatile long tick;
+	
+	/**
+	 * The names of the bodies, used as the keys of their pins
+	 */
+	private final String[] names;
+	
+	/**
+	 * The thrust from the main engines of each body
+	 */
+	private final double[] mainThrust;
+	
+	/**
+	 * The thrust from the rotational engines of each body
+	 */
+	private final double[] rotThrust;
+	
+	/**
+	 * The MinimapReadouts on which every body is shown as a pin, and the colors of their pins
+	 */
+	private volatile MinimapBinding[] minimaps = new MinimapBinding[0];
+	
+	/**
+	 * The CompassReadouts that point to a body, and the bodies to which they point
+	 */
+	private volatile GoalBinding[] goals = new GoalBinding[0];
+	
+	/**
+	 * The body whose position and bearing are sent to the LocationUpdatables, or -1 if there is none
+	 */
+	private volatile int trackedBody = -1;
+	
+	/**
+	 * Guards the state of the fleet
+	 */
+	private final Object stateLock = new Object();
+	
+	/**
+	 * Creates a FleetGenerator with the specified timing interval and the default capacity.
+	 * 
+	 * @param interval the time interval between steps, measured in milliseconds
+	 */
+	public FleetGenerator(int interval)
+	{
+		this(interval, DEFAULT_CAPACITY);
+	}
+	
+	/**
+	 * Creates a FleetGenerator with the specified timing interval and capacity.
+	 * 
+	 * @param interval the time interval between steps, measured in milliseconds
+	 * @param capacity the maximum number of bodies in the fleet
+	 * @throws IllegalArgumentException if the capacity is not positive
+	 */
+	public FleetGenerator(int interval, int capacity)
+	{
+		super(interval);
+		if(capacity <= 0) throw new IllegalArgumentException();
+		snapshots = new FleetSnapshot[3];
+		for(int i = 0; i < snapshots.length; ++i)
+		{
+			snapshots[i] = new FleetSnapshot(capacity);
+		}
+		latest = snapshots[0];
+		names = new String[capacity];
+		mainThrust = new double[capacity];
+		rotThrust = new double[capacity];
+	}
+	
+	/**
+	 * Adds a body at rest to the fleet. The body appears in snapshots from the next tick onwards,
+	 * and is added as a pin to every bound MinimapReadout.
+	 * 
+	 * @param name the name of the body, used as the key of its pins
+	 * @param x the x-coordinate of the body
+	 * @param y the y-coordinate of the body
+	 * @param heading the heading of the body, measured in radians counterclockwise from the x-axis
+	 * @return the index of the new body
+	 * @throws IllegalStateException if the fleet is full
+	 */
+	public int addBody(String name, double x, double y, double heading)
+	{
+		int body;
+		synchronized(stateLock)
+		{
+			if(count == names.length) throw new IllegalStateException();
+			body = count;
+			FleetSnapshot current = latest;
+			current.x[body] = x;
+			current.y[body] = y;
+			current.vx[body] = current.vy[body] = 0.0;
+			current.heading[body] = heading;
+			current.rotSpeed[body] = 0.0;
+			names[body] = name;
+			mainThrust[body] = rotThrust[body] = 0.0;
+			++count;
+			for(MinimapBinding binding : minimaps)
+			{
+				binding.minimap.addPin(name, new GPoint(x, y), binding.color);
+			}
+		}
+		return body;
+	}
+	
+	/**
+	 * Returns the number of bodies in the fleet.
+	 * 
+	 * @return the number of bodies in the fleet
+	 */
+	public int getBodyCount()
+	{
+		synchronized(stateLock)
+		{
+			return count;
+		}
+	}
+	
+	/**
+	 * Specifies the thrust from the engines of the specified body, relative to the body itself.
+	 * 
+	 * @param body the index of the body
+	 * @param rotThrust the thrust from the rotational engines, positive to turn counterclockwise
+	 * @param mainThrust the thrust from the main engines, positive to move forward
+	 */
+	public void setThrust(int body, double rotThrust, double mainThrust)
+	{
+		synchronized(stateLock)
+		{
+			this.rotThrust[body] = rotThrust;
+			this.mainThrust[body] = mainThrust;
+		}
+	}
+	
+	/**
+	 * Returns the most recently published snapshot of the fleet.
+	 * 
+	 * @return the most recently published snapshot
+	 */
+	public FleetSnapshot getSnapshot()
+	{
+		return latest;
+	}
+	
+	/**
+	 * Returns the tick of the most recently published snapshot, which counts every step taken so far,
+	 * including the steps taken for missed updates.
+	 * 
+	 * @return the tick of the most recently published snapshot
+	 */
+	public long getTick()
+	{
+		return tick;
+	}
+	
+	/**
+	 * Shows every body of the fleet, including bodies added later, as a pin on the specified MinimapReadout.
+	 * The pins are moved every tick.
+	 * 
+	 * @param minimap the MinimapReadout on which to show the fleet
+	 * @param color the color of the pins
+	 */
+	public void bindMinimap(MinimapReadout minimap, Color color)
+	{
+		synchronized(stateLock)
+		{
+			FleetSnapshot current = latest;
+			for(int i = 0; i < count; ++i)
+			{
+				minimap.addPin(names[i], new GPoint(current.x[i], current.y[i]), color);
+			}
+			MinimapBinding[] bindings = new MinimapBinding[minimaps.length + 1];
+			System.arraycopy(minimaps, 0, bindings, 0, minimaps.length);
+			bindings[minimaps.length] = new MinimapBinding(minimap, color);
+			minimaps = bindings;
+		}
+	}
+	
+	/**
+	 * Makes the specified CompassReadout point to the specified body. The goal of the CompassReadout is
+	 * updated every tick.
+	 * 
+	 * @param body the index of the body
+	 * @param compass the CompassReadout that should point to the body
+	 */
+	public void bindGoal(int body, CompassReadout compass)
+	{
+		synchronized(stateLock)
+		{
+			GoalBinding[] bindings = new GoalBinding[goals.length + 1];
+			System.arraycopy(goals, 0, bindings, 0, goals.length);
+			bindings[goals.length] = new GoalBinding(body, compass);
+			goals = bindings;
+		}
+	}
+	
+	/**
+	 * Sets the body whose position and bearing are sent to the FleetGenerator's LocationUpdatables
+	 * every tick.
+	 * 
+	 * @param body the index of the body, or -1 to send nothing
+	 */
+	public void setTrackedBody(int body)
+	{
+		trackedBody = body;
+	}
+	
+	/**
+	 * Advances every body by one step and updates all the Readouts associated with the FleetGenerator.
+	 */
+	@Override
+	public void generate()
+	{
+		generate(0);
+	}
+	
+	/**
+	 * Advances every body by one step for each missed update plus one, and updates all the Readouts
+	 * associated with the FleetGenerator once. Only the snapshot after the last step is published, and
+	 * the steps in between alternate between the two snapshots that were not published last, so one
+	 * update overwrites at most two snapshots however many updates were missed.
+	 * 
+	 * @param missed the number of updates that were missed since the previous update
+	 */
+	@Override
+	public void generate(int missed)
+	{
+		FleetSnapshot published;
+		synchronized(stateLock)
+		{
+			double dt = getInterval() / 1000.0;
+			int currentIndex = latestIndex;
+			int nextIndex = (latestIndex + 1) % snapshots.length;
+			int spareIndex = (latestIndex + 2) % snapshots.length;
+			for(int i = 0; i <= missed; ++i)
+			{
+				step(snapshots[currentIndex], snapshots[nextIndex], dt);
+				currentIndex = nextIndex;
+				nextIndex = spareIndex;
+				spareIndex = currentIndex;
+			}
+			published = snapshots[currentIndex];
+			latestIndex = currentIndex;
+			latest = published;
+			tick = published.tick;
+		}
+		publish(published);
+	}
+	
+	/**
+	 * Advances every body by one step, reading one snapshot and overwriting another. The snapshot being
+	 * overwritten is locked for writing, so that consumers still reading it can tell. Must be called
+	 * while holding the state lock.
+	 * 
+	 * @param current the snapshot holding the state before the step
+	 * @param next the snapshot in which to store the state after the step
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 */
+	private void step(FleetSnapshot current, FleetSnapshot next, double dt)
+	{
+		long stamp = next.writeLock.writeLock();
+		try
+		{
+			if(count < PARALLEL_THRESHOLD) stepRange(current, next, 0, count, dt);
+			else ForkJoinPool.commonPool().invoke(new StepTask(current, next, 0, count, dt));
+			next.count = count;
+			next.tick = current.tick + 1;
+		}
+		finally
+		{
+			next.writeLock.unlockWrite(stamp);
+		}
+	}
+	
+	/**
+	 * Advances the bodies in the specified range by one step with the semi-implicit Euler method.
+	 * The velocities are updated first, and then all the positions are moved in one bulk pass.
+	 * 
+	 * @param current the snapshot holding the state before the step
+	 * @param next the snapshot in which to store the state after the step
+	 * @param from the index of the first body to step
+	 * @param to the index after the last body to step
+	 * @param dt the amount of simulated time to advance, measured in seconds
+	 */
+	private void stepRange(FleetSnapshot current, FleetSnapshot next, int from, int to, double dt)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			double vx = current.vx[i], vy = current.vy[i];
+			double heading = current.heading[i];
+			double resistanceFactor = -RESISTANCE_COEFF * Math.sqrt(vx * vx + vy * vy);
+			vx += (mainThrust[i] * Math.cos(heading) + resistanceFactor * vx) / MASS * dt;
+			vy += (mainThrust[i] * Math.sin(heading) + resistanceFactor * vy) / MASS * dt;
+			double rotSpeed = current.rotSpeed[i];
+			rotSpeed += (rotThrust[i] - ROT_RESISTANCE_COEFF * rotSpeed * Math.abs(rotSpeed)) * dt;
+			next.vx[i] = vx;
+			next.vy[i] = vy;
+			next.rotSpeed[i] = rotSpeed;
+			next.heading[i] = heading + ROT_RATE * rotSpeed * dt;
+		}
+		CoordinateArrays.addScaled(current.x, current.y, from, to, next.vx, next.vy, dt, next.x, next.y);
+	}
+	
+	/**
+	 * Sends the specified snapshot to the bound MinimapReadouts and CompassReadouts, and sends the
+	 * tracked body to the LocationUpdatables.
+	 * 
+	 * @param snapshot the snapshot to send
+	 */
+	private void publish(FleetSnapshot snapshot)
+	{
+		int count = snapshot.count;
+		for(MinimapBinding binding : minimaps)
+		{
+			binding.minimap.movePins(names, snapshot.x, snapshot.y, count);
+		}
+		for(GoalBinding binding : goals)
+		{
+			if(binding.body < count) binding.compass.updateGoal(new GPoint(snapshot.x[binding.body], snapshot.y[binding.body]));
+		}
+		int body = trackedBody;
+		if(body < 0 || body >= count) return;
+		GPoint position = new GPoint(snapshot.x[body], snapshot.y[body]);
+		GPoint bearing = new GPoint(Math.cos(snapshot.heading[body]), Math.sin(snapshot.heading[body]));
+		for(LocationUpdatable readout : readouts.getLocationUpdatables())
+		{
+			readout.update(position, bearing);
+		}
+	}
+	
+	/**
+	 * Steps a range of bodies, splitting it in half until the pieces are small enough to step directly.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private class StepTask extends RecursiveAction
+	{
+		/**
+		 * The serialization version of the StepTask
+		 */
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * The snapshots before and after the step
+		 */
+		private final FleetSnapshot current, next;
+		
+		/**
+		 * The range of bodies to step
+		 */
+		private final int from, to;
+		
+		/**
+		 * The amount of simulated time to advance, measured in seconds
+		 */
+		private final double dt;
+		
+		/**
+		 * Creates a task that steps the bodies in the specified range.
+		 * 
+		 * @param current the snapshot holding the state before the step
+		 * @param next the snapshot in which to store the state after the step
+		 * @param from the index of the first body to step
+		 * @param to the index after the last body to step
+		 * @param dt the amount of simulated time to advance, measured in seconds
+		 */
+		private StepTask(FleetSnapshot current, FleetSnapshot next, int from, int to, double dt)
+		{
+			this.current = current;
+			this.next = next;
+			this.from = from;
+			this.to = to;
+			this.dt = dt;
+		}
+		
+		@Override
+		protected void compute()
+		{
+			if(to - from <= PARALLEL_THRESHOLD)
+			{
+				stepRange(current, next, from, to, dt);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new StepTask(current, next, from, mid, dt), new StepTask(current, next, mid, to, dt));
+		}
+	}
+	
+	/**
+	 * Associates a MinimapReadout with the color of the pins it shows.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class MinimapBinding
+	{
+		/**
+		 * The MinimapReadout on which the fleet is shown
+		 */
+		private final MinimapReadout minimap;
+		
+		/**
+		 * The color of the pins
+		 */
+		private final Color color;
+		
+		/**
+		 * Creates a MinimapBinding.
+		 * 
+		 * @param minimap the MinimapReadout on which the fleet is shown
+		 * @param color the color of the pins
+		 */
+		private MinimapBinding(MinimapReadout minimap, Color color)
+		{
+			this.minimap = minimap;
+			this.color = color;
+		}
+	}
+	
+	/**
+	 * Associates a CompassReadout with the body to which it points.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class GoalBinding
+	{
+		/**
+		 * The index of the body
+		 */
+		private final int body;
+		
+		/**
+		 * The CompassReadout that points to the body
+		 */
+		private final CompassReadout compass;
+		
+		/**
+		 * Creates a GoalBinding.
+		 * 
+		 * @param body the index of the body
+		 * @param compass the CompassReadout that points to the body
+		 */
+		private GoalBinding(int body, CompassReadout compass)
+		{
+			this.body = body;
+			this.compass = compass;
+		}
+	}
+}
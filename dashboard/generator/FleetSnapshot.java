@@ -0,0 +1,194 @@
+package dashboard.generator;
+
+import java.util.concurrent.locks.StampedLock;
+
+/**
+ * Holds the state of every body of a {@link FleetGenerator FleetGenerator} after one tick. The state is
+ * kept in primitive arrays indexed by body, and is read directly from the arrays that the FleetGenerator
+ * stepped, without copying.
+ * <p>
+ * A FleetGenerator owns three snapshots and reuses them, so a snapshot may be overwritten once the
+ * update after the one that published it has finished. Consumers that may read a snapshot for longer than
+ * that should call {@link #beginRead() beginRead} before reading and {@link #validate(long) validate}
+ * afterwards, and discard what they read if validate returns false:
+ * <pre>
+ * long stamp = snapshot.beginRead();
+ * double x = snapshot.getX(body), y = snapshot.getY(body);
+ * if(!snapshot.validate(stamp)) ... // The snapshot was overwritten while reading
+ * </pre>
+ * 
+ * @author Mark Sabini
+ *
+ */
+public final class FleetSnapshot
+{
+	/**
+	 * The x-coordinates of the bodies
+	 */
+	final double[] x;
+	
+	/**
+	 * The y-coordinates of the bodies
+	 */
+	final double[] y;
+	
+	/**
+	 * The x-components of the velocities of the bodies
+	 */
+	final double[] vx;
+	
+	/**
+	 * The y-components of the velocities of the bodies
+	 */
+	final double[] vy;
+	
+	/**
+	 * The headings of the bodies, measured in radians counterclockwise from the x-axis
+	 */
+	final double[] heading;
+	
+	/**
+	 * The signed rotational speeds of the bodies
+	 */
+	final double[] rotSpeed;
+	
+	/**
+	 * The number of bodies in the snapshot
+	 */
+	int count;
+	
+	/**
+	 * The number of steps the fleet had taken when the snapshot was stepped
+	 */
+	long tick;
+	
+	/**
+	 * Held for writing while the FleetGenerator overwrites the snapshot, and used by consumers to detect that
+	 */
+	final StampedLock writeLock = new StampedLock();
+	
+	/**
+	 * Creates an empty snapshot that can hold the specified number of bodies.
+	 * 
+	 * @param capacity the maximum number of bodies
+	 */
+	FleetSnapshot(int capacity)
+	{
+		x = new double[capacity];
+		y = new double[capacity];
+		vx = new double[capacity];
+		vy = new double[capacity];
+		heading = new double[capacity];
+		rotSpeed = new double[capacity];
+	}
+	
+	/**
+	 * Returns the number of bodies in the snapshot.
+	 * 
+	 * @return the number of bodies in the snapshot
+	 */
+	public int getCount()
+	{
+		return count;
+	}
+	
+	/**
+	 * Returns the tick at which the snapshot was stepped, which counts every step the fleet had taken
+	 * by then. The first tick is 1.
+	 * 
+	 * @return the tick at which the snapshot was published
+	 */
+	public long getTick()
+	{
+		return tick;
+	}
+	
+	/**
+	 * Returns a stamp to pass to {@link #validate(long) validate} after reading the snapshot. The stamp is
+	 * 0, and never validates, if the snapshot is being overwritten.
+	 * 
+	 * @return a stamp to pass to validate
+	 */
+	public long beginRead()
+	{
+		return writeLock.tryOptimisticRead();
+	}
+	
+	/**
+	 * Returns whether the snapshot has not been overwritten since the specified stamp was returned by
+	 * {@link #beginRead() beginRead}, so that everything read from it in the meantime is consistent.
+	 * 
+	 * @param stamp the stamp returned by beginRead
+	 * @return whether what was read from the snapshot is consistent
+	 */
+	public boolean validate(long stamp)
+	{
+		return stamp != 0 && writeLock.validate(stamp);
+	}
+	
+	/**
+	 * Returns the x-coordinate of the specified body.
+	 * 
+	 * @param body the index of the body
+	 * @return the x-coordinate of the body
+	 */
+	public double getX(int body)
+	{
+		return x[body];
+	}
+	
+	/**
+	 * Returns the y-coordinate of the specified body.
+	 * 
+	 * @param body the index of the body
+	 * @return the y-coordinate of the body
+	 */
+	public double getY(int body)
+	{
+		return y[body];
+	}
+	
+	/**
+	 * Returns the x-component of the velocity of the specified body.
+	 * 
+	 * @param body the index of the body
+	 * @return the x-component of the velocity of the body
+	 */
+	public double getVelocityX(int body)
+	{
+		return vx[body];
+	}
+	
+	/**
+	 * Returns the y-component of the velocity of the specified body.
+	 * 
+	 * @param body the index of the body
+	 * @return the y-component of the velocity of the body
+	 */
+	public double getVelocityY(int body)
+	{
+		return vy[body];
+	}
+	
+	/**
+	 * Returns the heading of the specified body.
+	 * 
+	 * @param body the index of the body
+	 * @return the heading of the body, measured in radians counterclockwise from the x-axis
+	 */
+	public double getHeading(int body)
+	{
+		return heading[body];
+	}
+	
+	/**
+	 * Returns the signed rotational speed of the specified body.
+	 * 
+	 * @param body the index of the body
+	 * @return the signed rotational speed of the body
+	 */
+	public double getRotSpeed(int body)
+	{
+		return rotSpeed[body];
+	}
+}
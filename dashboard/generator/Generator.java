@@ -1,14 +1,30 @@
 package dashboard.generator;
 
-import java.util.HashMap;
-import java.util.Map;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
 
 import dashboard.readout.Readout;
+import dashboard.util.ThreadMode;
 
 /**
  * Provides the base functionality for a data generator that creates data and transmits it
  * at regular intervals to a {@link Readout Readout}. This can be used to animate Readouts for a
  * cosmetic effect.
+ * <p>
+ * Generators do not own threads. Every active Generator is driven by a task on a shared
+ * {@link ScheduledExecutorService ScheduledExecutorService}, which by default is a daemon pool
+ * with one thread per available processor. A different scheduler can be plugged in with
+ * {@link #setScheduler(ScheduledExecutorService) setScheduler}. Alternatively, a Generator can be set to
+ * run on its own virtual thread with {@link #setThreadMode(int) setThreadMode}.
+ * <p>
+ * By default, a Generator waits for its interval after each update finishes. In fixed-rate mode
+ * (see {@link #setFixedRate(boolean) setFixedRate}), updates are instead aligned to a monotonic
+ * clock, and updates that could not be run on time are handled according to the overrun policy.
  * 
  * @author Mark Sabini
  *
@@ -18,28 +34,89 @@ public abstract class Generator
 	/**
 	 * Whether the Generator is currently transmitting data to its Readouts
 	 */
-	private boolean active = false;
+	private volatile boolean active = false;
 	
 	/**
-	 * The thread of execution in which the Generator updates its Readouts
+	 * The task that is currently driving the Generator, or null if the Generator is inactive
+	 */
+	private Ticker ticker;
+	
+	/**
+	 * The pending execution of the current task on the scheduler
+	 */
+	private ScheduledFuture<?> future;
+	
+	/**
+	 * The virtual thread running the current task, if the Generator is in virtual thread mode
 	 */
 	private Thread thr;
 	
+	/**
+	 * The kind of thread on which the Generator runs
+	 */
+	private int threadMode = ThreadMode.PLATFORM;
+	
 	/**
 	 * The time interval between updates, measured in milliseconds
 	 */
-	private int interval;
+	private volatile int interval;
+	
+	/**
+	 * Whether updates are aligned to a fixed rate rather than separated by a fixed delay
+	 */
+	private volatile boolean fixedRate = false;
+	
+	/**
+	 * How updates that could not be run on time are handled in fixed-rate mode
+	 */
+	private volatile int overrunPolicy = SKIP_MISSED;
+	
+	/**
+	 * How late the most recent update started, measured in nanoseconds
+	 */
+	private volatile long lateness;
+	
+	/**
+	 * The number of updates that started at least one full interval late
+	 */
+	private final AtomicLong overrunCount = new AtomicLong();
 	
 	/**
-	 * Maps keys to their associated Readouts
+	 * The number of updates that were skipped or coalesced because of overruns
 	 */
-	protected Map<String, Readout> readouts;
+	private final AtomicLong missedCount = new AtomicLong();
+	
+	/**
+	 * The Readouts associated with the Generator, sorted by the Updatable interfaces they implement
+	 */
+	protected final ReadoutRegistry readouts;
 	
 	/**
 	 * The default time interval between updates, if none is specified by the user
 	 */
 	private static final int DEFAULT_INTERVAL = 500;
 	
+	/**
+	 * The scheduler shared by all Generators, created lazily if none is specified by the user
+	 */
+	private static ScheduledExecutorService scheduler;
+	
+	/**
+	 * Used to make a fixed-rate Generator drop missed updates and resume at the next aligned time
+	 */
+	public static final int SKIP_MISSED = 0;
+	
+	/**
+	 * Used to make a fixed-rate Generator run missed updates back-to-back until it has caught up
+	 */
+	public static final int CATCH_UP = 1;
+	
+	/**
+	 * Used to make a fixed-rate Generator replace missed updates with a single call to
+	 * {@link #generate(int) generate(int)}, passing the number of updates that were missed
+	 */
+	public static final int COALESCE_MISSED = 2;
+	
 	/**
 	 * Creates a Generator with the default timing interval.
 	 */
@@ -56,7 +133,7 @@ public abstract class Generator
 	public Generator(int interval)
 	{
 		this.interval = interval;
-		readouts = new HashMap<String, Readout>();
+		readouts = new ReadoutRegistry();
 	}
 	
 	/**
@@ -64,7 +141,7 @@ public abstract class Generator
 	 * 
 	 * @param flag whether the Generator should be active
 	 */
-	public void setActive(boolean flag)
+	public synchronized void setActive(boolean flag)
 	{
 		if(flag && !active)
 		{
@@ -101,40 +178,241 @@ public abstract class Generator
 	}
 	
 	/**
-	 * Turns on the Generator. Internally, the function starts a new thread that
-	 * repeatedly calls {@link #generate() generate} until it is interrupted.
+	 * Returns the time interval used by the Generator.
+	 * 
+	 * @return the time interval between updates, measured in milliseconds
+	 */
+	public int getInterval()
+	{
+		return interval;
+	}
+	
+	/**
+	 * Sets whether the Generator runs at a fixed rate. In fixed-rate mode, the n-th update is
+	 * scheduled n intervals after the Generator was turned on, regardless of how long each update
+	 * takes. Otherwise, the Generator waits for its interval after each update finishes.
+	 * 
+	 * @param flag whether the Generator should run at a fixed rate
+	 */
+	public void setFixedRate(boolean flag)
+	{
+		fixedRate = flag;
+	}
+	
+	/**
+	 * Returns whether the Generator runs at a fixed rate.
+	 * 
+	 * @return whether the Generator runs at a fixed rate
+	 */
+	public boolean isFixedRate()
+	{
+		return fixedRate;
+	}
+	
+	/**
+	 * Sets how a fixed-rate Generator handles updates that could not be run on time. The policy must be
+	 * one of {@link #SKIP_MISSED SKIP_MISSED}, {@link #CATCH_UP CATCH_UP}, or {@link #COALESCE_MISSED COALESCE_MISSED}.
+	 * 
+	 * @param overrunPolicy the overrun policy of the Generator
+	 * @throws IllegalArgumentException if an invalid policy is specified
+	 */
+	public void setOverrunPolicy(int overrunPolicy)
+	{
+		if(overrunPolicy != SKIP_MISSED && overrunPolicy != CATCH_UP && overrunPolicy != COALESCE_MISSED) throw new IllegalArgumentException();
+		this.overrunPolicy = overrunPolicy;
+	}
+	
+	/**
+	 * Returns the overrun policy of the Generator.
+	 * 
+	 * @return the overrun policy of the Generator
+	 */
+	public int getOverrunPolicy()
+	{
+		return overrunPolicy;
+	}
+	
+	/**
+	 * Returns how late the most recent update started relative to when it was scheduled.
+	 * 
+	 * @return the lateness of the most recent update, measured in milliseconds
+	 */
+	public double getLateness()
+	{
+		return lateness / 1000000.0;
+	}
+	
+	/**
+	 * Returns the number of updates that started at least one full interval late.
+	 * 
+	 * @return the number of overruns since the counters were last reset
+	 */
+	public long getOverrunCount()
+	{
+		return overrunCount.get();
+	}
+	
+	/**
+	 * Returns the number of updates that were skipped or coalesced because of overruns.
+	 * 
+	 * @return the number of missed updates since the counters were last reset
+	 */
+	public long getMissedCount()
+	{
+		return missedCount.get();
+	}
+	
+	/**
+	 * Resets the lateness and overrun counters of the Generator.
+	 */
+	public void resetTimingCounters()
+	{
+		lateness = 0;
+		overrunCount.set(0);
+		missedCount.set(0);
+	}
+	
+	/**
+	 * Sets the kind of thread on which the Generator runs. In {@link ThreadMode#PLATFORM ThreadMode.PLATFORM}
+	 * mode, the Generator is driven by the shared scheduler. In {@link ThreadMode#VIRTUAL ThreadMode.VIRTUAL}
+	 * mode, the Generator runs on its own virtual thread, or on the shared scheduler if virtual threads are
+	 * not supported by the JVM. If the Generator is active, it is restarted in the new mode.
+	 * 
+	 * @param threadMode the kind of thread on which the Generator runs
+	 * @throws IllegalArgumentException if an invalid mode is specified
+	 */
+	public synchronized void setThreadMode(int threadMode)
+	{
+		if(!ThreadMode.isValid(threadMode)) throw new IllegalArgumentException();
+		if(this.threadMode == threadMode) return;
+		this.threadMode = threadMode;
+		if(active)
+		{
+			turnOff();
+			turnOn();
+		}
+	}
+	
+	/**
+	 * Returns the kind of thread on which the Generator runs.
+	 * 
+	 * @return the thread mode of the Generator
+	 */
+	public synchronized int getThreadMode()
+	{
+		return threadMode;
+	}
+	
+	/**
+	 * Turns on the Generator. Internally, the function either schedules a task on the shared scheduler
+	 * that calls {@link #generate() generate} and then reschedules itself, or starts a virtual thread
+	 * that repeatedly runs the task until it is interrupted.
 	 */
-	private void turnOn()
+	private synchronized void turnOn()
 	{
-		thr = new Thread(new Runnable()
+		ticker = new Ticker();
+		if(threadMode == ThreadMode.VIRTUAL && ThreadMode.isVirtualSupported())
 		{
-			@Override
-			public void run()
+			final Ticker task = ticker;
+			thr = ThreadMode.newThread(ThreadMode.VIRTUAL, new Runnable()
 			{
-				while(!Thread.interrupted())
+				@Override
+				public void run()
 				{	
 					try
 					{
-						generate();
-						Thread.sleep(interval);
+						while(!Thread.interrupted() && isCurrent(task))
+						{
+							TimeUnit.NANOSECONDS.sleep(task.tick());
+						}
 					}
 					catch(InterruptedException e)
 					{
 						return;
 					}
-					
 				}
-			}
-		});
-		thr.start();
+			});
+			thr.start();
+		}
+		else future = getScheduler().schedule(ticker, 0, TimeUnit.MILLISECONDS);
+	}
+	
+	/**
+	 * Turns off the Generator. Internally, the function cancels the pending task or interrupts the
+	 * virtual thread. A task that is already running will finish its current update but will not run again.
+	 */
+	private synchronized void turnOff()
+	{
+		ticker = null;
+		if(future != null) future.cancel(false);
+		future = null;
+		if(thr != null) thr.interrupt();
+		thr = null;
+	}
+	
+	/**
+	 * Returns whether the given task is still the one driving the Generator.
+	 * 
+	 * @param task the task to check
+	 * @return whether the Generator has not been turned off since the task was started
+	 */
+	private synchronized boolean isCurrent(Ticker task)
+	{
+		return ticker == task;
 	}
 	
 	/**
-	 * Turns off the Generator. Internally, the function interrupts the generation thread.
+	 * Schedules the next update of the given task, unless the Generator has been turned off
+	 * (or turned off and on again) since the task was started.
+	 * 
+	 * @param task the task requesting to be rescheduled
+	 * @param delay the time until the next update, measured in nanoseconds
 	 */
-	private void turnOff()
+	private synchronized void reschedule(Ticker task, long delay)
 	{
-		thr.interrupt();
+		if(ticker != task) return;
+		future = getScheduler().schedule(task, delay, TimeUnit.NANOSECONDS);
+	}
+	
+	/**
+	 * Sets the scheduler used to drive all Generators. Generators that are already active keep
+	 * using the previous scheduler until their next update.
+	 * 
+	 * @param scheduler the scheduler to be used by all Generators
+	 * @throws IllegalArgumentException if the scheduler is null
+	 */
+	public static synchronized void setScheduler(ScheduledExecutorService scheduler)
+	{
+		if(scheduler == null) throw new IllegalArgumentException();
+		Generator.scheduler = scheduler;
+	}
+	
+	/**
+	 * Returns the scheduler used to drive all Generators. If none has been set, a daemon pool with
+	 * one thread per available processor is created.
+	 * 
+	 * @return the scheduler used to drive all Generators
+	 */
+	public static synchronized ScheduledExecutorService getScheduler()
+	{
+		if(scheduler == null)
+		{
+			ScheduledThreadPoolExecutor pool = new ScheduledThreadPoolExecutor(Runtime.getRuntime().availableProcessors(), new ThreadFactory()
+			{
+				private final AtomicInteger count = new AtomicInteger();
+				
+				@Override
+				public Thread newThread(Runnable r)
+				{
+					Thread thr = new Thread(r, "Generator-" + count.incrementAndGet());
+					thr.setDaemon(true);
+					return thr;
+				}
+			});
+			pool.setRemoveOnCancelPolicy(true);
+			scheduler = pool;
+		}
+		return scheduler;
 	}
 	
 	/**
@@ -146,8 +424,7 @@ public abstract class Generator
 	 */
 	public void addReadout(String key, Readout readout)
 	{
-		if(readouts.containsKey(key)) return;
-		readouts.put(key, readout);
+		readouts.add(key, readout);
 	}
 	
 	/**
@@ -157,7 +434,6 @@ public abstract class Generator
 	 */
 	public void removeReadout(String key)
 	{
-		if(!readouts.containsKey(key)) return;
 		readouts.remove(key);
 	}
 	
@@ -165,4 +441,85 @@ public abstract class Generator
 	 * Updates each Readout once with data of a certain form, dependent on the specific subclass.
 	 */
 	public abstract void generate();
+	
+	/**
+	 * Updates each Readout once after one or more updates were missed. This is only called by
+	 * fixed-rate Generators using the {@link #COALESCE_MISSED COALESCE_MISSED} policy. By default,
+	 * the number of missed updates is ignored and {@link #generate() generate} is called.
+	 * 
+	 * @param missed the number of updates that were missed since the previous update
+	 */
+	public void generate(int missed)
+	{
+		generate();
+	}
+	
+	/**
+	 * A single activation of the Generator. Each tick updates the Readouts once and then
+	 * determines when the next tick is due, so changes to the interval and timing mode take effect
+	 * immediately. When run on the shared scheduler, the task reschedules itself after each tick.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private class Ticker implements Runnable
+	{
+		/**
+		 * The time at which the current update was due, according to {@link System#nanoTime() System.nanoTime}
+		 */
+		private long due = System.nanoTime();
+		
+		@Override
+		public void run()
+		{
+			reschedule(this, tick());
+		}
+		
+		/**
+		 * Updates the Readouts once, handling overruns according to the overrun policy.
+		 * 
+		 * @return the time until the next tick is due, measured in nanoseconds
+		 */
+		private long tick()
+		{
+			long start = System.nanoTime();
+			long late = Math.max(0, start - due);
+			lateness = late;
+			long period = TimeUnit.MILLISECONDS.toNanos(interval);
+			if(!fixedRate)
+			{
+				generate();
+				due = System.nanoTime() + period;
+				return period;
+			}
+			long missed = (period == 0) ? 0 : late / period;
+			if(missed == 0)
+			{
+				generate();
+				due += period;
+			}
+			else
+			{
+				overrunCount.incrementAndGet();
+				switch(overrunPolicy)
+				{
+				case CATCH_UP:
+					generate();
+					due += period;
+					break;
+				case COALESCE_MISSED:
+					missedCount.addAndGet(missed);
+					generate((int)Math.min(missed, Integer.MAX_VALUE));
+					due += (missed + 1) * period;
+					break;
+				default: // SKIP_MISSED
+					missedCount.addAndGet(missed);
+					generate();
+					due += (missed + 1) * period;
+					break;
+				}
+			}
+			return Math.max(0, due - System.nanoTime());
+		}
+	}
 }
@@ -0,0 +1,141 @@
+package dashboard.generator;
+
+import java.util.Arrays;
+
+import dashboard.readout.StringUpdatable;
+
+/**
+ * Buffers the proximity and collision events raised by a {@link ProximityTracker ProximityTracker}, so
+ * that they can be dispatched to the listener and the alert readout after the locks guarding the
+ * physics engine have been released. The buffer grows as needed and is reused, so raising and
+ * dispatching events does not allocate once it has grown large enough.
+ * <p>
+ * A ProximityEvents is not synchronized; its owner must guard it.
+ * 
+ * @author Mark Sabini
+ *
+ */
+final class ProximityEvents
+{
+	/**
+	 * Used for events raised when the ship comes within the proximity radius of a target
+	 */
+	static final int ENTERED = 0;
+	
+	/**
+	 * Used for events raised when the ship leaves the proximity radius of a target
+	 */
+	static final int EXITED = 1;
+	
+	/**
+	 * Used for events raised when the ship comes within the collision radius of a target
+	 */
+	static final int COLLIDED = 2;
+	
+	/**
+	 * The types of the buffered events
+	 */
+	private int[] types = new int[16];
+	
+	/**
+	 * The keys of the targets of the buffered events
+	 */
+	private String[] keys = new String[16];
+	
+	/**
+	 * The distances to the targets of the buffered events
+	 */
+	private double[] distances = new double[16];
+	
+	/**
+	 * The number of buffered events
+	 */
+	private int count = 0;
+	
+	/**
+	 * Returns whether no events are buffered.
+	 * 
+	 * @return whether no events are buffered
+	 */
+	boolean isEmpty()
+	{
+		return count == 0;
+	}
+	
+	/**
+	 * Adds an event to the end of the buffer.
+	 * 
+	 * @param type the type of the event
+	 * @param key the key of the target
+	 * @param distance the distance to the target
+	 */
+	void add(int type, String key, double distance)
+	{
+		if(count == types.length) grow(2 * count);
+		types[count] = type;
+		keys[count] = key;
+		distances[count] = distance;
+		++count;
+	}
+	
+	/**
+	 * Moves every buffered event to the end of the specified buffer, leaving this buffer empty.
+	 * 
+	 * @param other the buffer that receives the events
+	 */
+	void moveTo(ProximityEvents other)
+	{
+		if(other.count + count > other.types.length) other.grow(Math.max(other.count + count, 2 * other.types.length));
+		System.arraycopy(types, 0, other.types, other.count, count);
+		System.arraycopy(keys, 0, other.keys, other.count, count);
+		System.arraycopy(distances, 0, other.distances, other.count, count);
+		other.count += count;
+		Arrays.fill(keys, 0, count, null);
+		count = 0;
+	}
+	
+	/**
+	 * Sends the buffered events to the listener and the alert readout, in the order they were raised,
+	 * and empties the buffer.
+	 * 
+	 * @param listener the listener to notify, or null if there is none
+	 * @param alerts the Readout on which to print alerts, or null if there is none
+	 */
+	void dispatch(ProximityListener listener, StringUpdatable alerts)
+	{
+		int count = this.count;
+		this.count = 0;
+		for(int i = 0; i < count; ++i)
+		{
+			String key = keys[i];
+			keys[i] = null;
+			switch(types[i])
+			{
+			case ENTERED:
+				if(listener != null) listener.targetEntered(key, distances[i]);
+				if(alerts != null) alerts.update("PROXIMITY " + key);
+				break;
+			case COLLIDED:
+				if(listener != null) listener.targetCollided(key, distances[i]);
+				if(alerts != null) alerts.update("COLLISION " + key);
+				break;
+			default: // EXITED
+				if(listener != null) listener.targetExited(key);
+				if(alerts != null) alerts.update("CLEAR " + key);
+				break;
+			}
+		}
+	}
+	
+	/**
+	 * Grows the buffer so that it can hold at least the specified number of events.
+	 * 
+	 * @param capacity the number of events needed
+	 */
+	private void grow(int capacity)
+	{
+		types = Arrays.copyOf(types, capacity);
+		keys = Arrays.copyOf(keys, capacity);
+		distances = Arrays.copyOf(distances, capacity);
+	}
+}
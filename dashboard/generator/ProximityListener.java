@@ -0,0 +1,37 @@
+package dashboard.generator;
+
+/**
+ * Defines the functionality of a class that is notified when the ship of a {@link DatumGenerator DatumGenerator}
+ * comes near a target or collides with it (see {@link DatumGenerator#addTarget(String, double, double) addTarget}).
+ * The methods are called on the physics thread once the steps of a wakeup have finished, so they should
+ * return quickly. No locks of the DatumGenerator are held while they run, so they may call back into it.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public interface ProximityListener
+{
+	/**
+	 * Called when the ship comes within the proximity radius of a target.
+	 * 
+	 * @param key the key of the target
+	 * @param distance the distance from the ship to the target
+	 */
+	public void targetEntered(String key, double distance);
+	
+	/**
+	 * Called when the ship leaves the proximity radius of a target.
+	 * 
+	 * @param key the key of the target
+	 */
+	public void targetExited(String key);
+	
+	/**
+	 * Called when the ship comes within the collision radius of a target. The event is raised again only
+	 * after the ship has left the collision radius.
+	 * 
+	 * @param key the key of the target
+	 * @param distance the distance from the ship to the target
+	 */
+	public void targetCollided(String key, double distance);
+}
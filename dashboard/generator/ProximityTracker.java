@@ -0,0 +1,263 @@
+package dashboard.generator;
+
+import java.util.ArrayDeque;
+import java.util.Arrays;
+import java.util.HashMap;
+
+import dashboard.util.SpatialHash;
+
+/**
+ * Keeps track of the targets near the ship of a {@link DatumGenerator DatumGenerator}, and raises
+ * proximity and collision events as the ship moves. The targets are stored in a {@link SpatialHash SpatialHash}
+ * whose cells are as large as the proximity radius, so each check only visits the targets in the few
+ * cells around the ship, however many targets there are.
+ * <p>
+ * All methods are synchronized, so targets can be added and moved from any thread while the physics
+ * engine checks them. Checks only collect events into a {@link ProximityEvents ProximityEvents} buffer,
+ * and never call out while holding the lock; the DatumGenerator dispatches the events afterwards.
+ * 
+ * @author Mark Sabini
+ *
+ */
+final class ProximityTracker
+{
+	/**
+	 * The positions of the targets, indexed by target id
+	 */
+	private SpatialHash targets;
+	
+	/**
+	 * The ids of the targets, indexed by key
+	 */
+	private final HashMap<String, Integer> ids = new HashMap<String, Integer>();
+	
+	/**
+	 * The keys of the targets, indexed by target id
+	 */
+	private String[] keys = new String[16];
+	
+	/**
+	 * Ids of removed targets, which are reused before new ids are handed out
+	 */
+	private final ArrayDeque<Integer> freeIds = new ArrayDeque<Integer>();
+	
+	/**
+	 * The smallest id that has never been handed out
+	 */
+	private int nextId = 0;
+	
+	/**
+	 * The distance within which the ship is near a target
+	 */
+	private double proximityRadius;
+	
+	/**
+	 * The distance within which the ship collides with a target
+	 */
+	private double collisionRadius;
+	
+	/**
+	 * Whether the ship is currently near, or colliding with, each target
+	 */
+	private boolean[] near = new boolean[16], colliding = new boolean[16];
+	
+	/**
+	 * The ids of the targets the ship is currently near
+	 */
+	private int[] nearIds = new int[16];
+	
+	/**
+	 * The number of targets the ship is currently near
+	 */
+	private int nearCount = 0;
+	
+	/**
+	 * The number of the check during which each target was last found near the ship
+	 */
+	private long[] seenAt = new long[16];
+	
+	/**
+	 * The number of checks run so far
+	 */
+	private long checkCount = 0;
+	
+	/**
+	 * The ids found by the most recent query
+	 */
+	private int[] found = new int[16];
+	
+	/**
+	 * Creates a ProximityTracker with no targets and the specified radii.
+	 * 
+	 * @param proximityRadius the distance within which the ship is near a target
+	 * @param collisionRadius the distance within which the ship collides with a target
+	 */
+	ProximityTracker(double proximityRadius, double collisionRadius)
+	{
+		this.proximityRadius = proximityRadius;
+		this.collisionRadius = collisionRadius;
+		targets = new SpatialHash(proximityRadius);
+	}
+	
+	/**
+	 * Adds a target with the specified key, or moves it if it already exists.
+	 * 
+	 * @param key the key of the target
+	 * @param x the x-coordinate of the target
+	 * @param y the y-coordinate of the target
+	 */
+	synchronized void putTarget(String key, double x, double y)
+	{
+		Integer id = ids.get(key);
+		if(id == null)
+		{
+			id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+			if(id >= keys.length) growTargets(id + 1);
+			keys[id] = key;
+			ids.put(key, id);
+		}
+		targets.put(id, x, y);
+	}
+	
+	/**
+	 * Removes the target with the specified key, without raising any events. If the target could not
+	 * be found, no action is taken.
+	 * 
+	 * @param key the key of the target
+	 */
+	synchronized void removeTarget(String key)
+	{
+		Integer id = ids.remove(key);
+		if(id == null) return;
+		targets.remove(id);
+		keys[id] = null;
+		if(near[id])
+		{
+			for(int i = 0; i < nearCount; ++i)
+			{
+				if(nearIds[i] == id) nearIds[i--] = nearIds[--nearCount];
+			}
+		}
+		near[id] = colliding[id] = false;
+		freeIds.push(id);
+	}
+	
+	/**
+	 * Returns the number of targets.
+	 * 
+	 * @return the number of targets
+	 */
+	synchronized int getTargetCount()
+	{
+		return targets.size();
+	}
+	
+	/**
+	 * Sets the distance within which the ship is near a target. The targets are rehashed with cells of
+	 * the new size.
+	 * 
+	 * @param proximityRadius the distance within which the ship is near a target
+	 */
+	synchronized void setProximityRadius(double proximityRadius)
+	{
+		SpatialHash rehashed = new SpatialHash(proximityRadius);
+		for(int id = 0; id < nextId; ++id)
+		{
+			if(targets.contains(id)) rehashed.put(id, targets.getX(id), targets.getY(id));
+		}
+		targets = rehashed;
+		this.proximityRadius = proximityRadius;
+	}
+	
+	/**
+	 * Returns the distance within which the ship is near a target.
+	 * 
+	 * @return the proximity radius
+	 */
+	synchronized double getProximityRadius()
+	{
+		return proximityRadius;
+	}
+	
+	/**
+	 * Sets the distance within which the ship collides with a target.
+	 * 
+	 * @param collisionRadius the distance within which the ship collides with a target
+	 */
+	synchronized void setCollisionRadius(double collisionRadius)
+	{
+		this.collisionRadius = collisionRadius;
+	}
+	
+	/**
+	 * Returns the distance within which the ship collides with a target.
+	 * 
+	 * @return the collision radius
+	 */
+	synchronized double getCollisionRadius()
+	{
+		return collisionRadius;
+	}
+	
+	/**
+	 * Checks the targets near the specified position of the ship, and adds any resulting events to the
+	 * specified buffer. Collisions are only detected with targets that are also within the proximity radius.
+	 * 
+	 * @param x the x-coordinate of the ship
+	 * @param y the y-coordinate of the ship
+	 * @param events the buffer to which the events are added
+	 */
+	synchronized void check(double x, double y, ProximityEvents events)
+	{
+		if(targets.size() == 0 && nearCount == 0) return;
+		long check = ++checkCount;
+		int count = targets.query(x, y, proximityRadius, found);
+		if(count > found.length)
+		{
+			found = new int[Math.max(count, 2 * found.length)];
+			count = targets.query(x, y, proximityRadius, found);
+		}
+		for(int i = 0; i < count; ++i)
+		{
+			int id = found[i];
+			seenAt[id] = check;
+			double dx = targets.getX(id) - x, dy = targets.getY(id) - y;
+			double distance = Math.sqrt(dx * dx + dy * dy);
+			if(!near[id])
+			{
+				near[id] = true;
+				if(nearCount == nearIds.length) nearIds = Arrays.copyOf(nearIds, 2 * nearCount);
+				nearIds[nearCount++] = id;
+				events.add(ProximityEvents.ENTERED, keys[id], distance);
+			}
+			if(distance <= collisionRadius)
+			{
+				if(!colliding[id]) events.add(ProximityEvents.COLLIDED, keys[id], distance);
+				colliding[id] = true;
+			}
+			else colliding[id] = false;
+		}
+		for(int i = 0; i < nearCount; ++i)
+		{
+			int id = nearIds[i];
+			if(seenAt[id] == check) continue;
+			near[id] = colliding[id] = false;
+			nearIds[i--] = nearIds[--nearCount];
+			events.add(ProximityEvents.EXITED, keys[id], 0.0);
+		}
+	}
+	
+	/**
+	 * Grows the arrays indexed by target id so that they can hold at least the specified number of ids.
+	 * 
+	 * @param capacity the number of ids needed
+	 */
+	private void growTargets(int capacity)
+	{
+		int length = Math.max(capacity, 2 * keys.length);
+		keys = Arrays.copyOf(keys, length);
+		near = Arrays.copyOf(near, length);
+		colliding = Arrays.copyOf(colliding, length);
+		seenAt = Arrays.copyOf(seenAt, length);
+	}
+}
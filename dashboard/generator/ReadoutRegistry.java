@@ -0,0 +1,308 @@
+package dashboard.generator;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import dashboard.readout.ColorUpdatable;
+import dashboard.readout.ImageUpdatable;
+import dashboard.readout.LocationUpdatable;
+import dashboard.readout.NumberBatchUpdatable;
+import dashboard.readout.NumberUpdatable;
+import dashboard.readout.Readout;
+import dashboard.readout.StringBatchUpdatable;
+import dashboard.readout.StringUpdatable;
+
+/**
+ * Holds the Readouts associated with a {@link Generator Generator}. When a Readout is registered, it is
+ * sorted into flat arrays according to the Updatable interfaces it implements, so that a Generator can
+ * update all Readouts of a given kind without hashing, casting, or allocating an iterator.
+ * <p>
+ * Readouts may be added and removed from any thread while a Generator is updating them. Each change
+ * builds a new, immutable snapshot of the registry and publishes it atomically, so readers never lock and
+ * never observe a partially applied change. The arrays returned by the getters belong to the snapshot
+ * that was current at the time of the call, and must not be modified by the caller.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class ReadoutRegistry
+{
+	/**
+	 * The current contents of the registry, replaced as a whole whenever a Readout is added or removed
+	 */
+	private volatile Snapshot snapshot;
+	
+	/**
+	 * Creates an empty ReadoutRegistry.
+	 */
+	public ReadoutRegistry()
+	{
+		snapshot = new Snapshot(new HashMap<String, Readout>());
+	}
+	
+	/**
+	 * Registers the specified Readout and binds it to the given key. If a Readout is already
+	 * bound to the key, no action is taken.
+	 * 
+	 * @param key a handle that refers to the Readout
+	 * @param readout the Readout to be registered
+	 * @return whether the Readout was registered
+	 */
+	public synchronized boolean add(String key, Readout readout)
+	{
+		if(snapshot.readouts.containsKey(key)) return false;
+		Map<String, Readout> readouts = new HashMap<String, Readout>(snapshot.readouts);
+		readouts.put(key, readout);
+		snapshot = new Snapshot(readouts);
+		return true;
+	}
+	
+	/**
+	 * Unregisters the Readout bound to the specified key. If no Readout is bound to the key,
+	 * no action is taken.
+	 * 
+	 * @param key the key that was bound to the Readout in {@link #add(String, Readout) add}
+	 * @return whether a Readout was unregistered
+	 */
+	public synchronized boolean remove(String key)
+	{
+		if(!snapshot.readouts.containsKey(key)) return false;
+		Map<String, Readout> readouts = new HashMap<String, Readout>(snapshot.readouts);
+		readouts.remove(key);
+		snapshot = new Snapshot(readouts);
+		return true;
+	}
+	
+	/**
+	 * Returns the Readout bound to the specified key, or null if there is none.
+	 * 
+	 * @param key the key that is bound to the Readout
+	 * @return the Readout bound to the specified key
+	 */
+	public Readout get(String key)
+	{
+		return snapshot.readouts.get(key);
+	}
+	
+	/**
+	 * Returns whether a Readout is bound to the specified key.
+	 * 
+	 * @param key the key to check
+	 * @return whether a Readout is bound to the specified key
+	 */
+	public boolean containsKey(String key)
+	{
+		return snapshot.readouts.containsKey(key);
+	}
+	
+	/**
+	 * Returns the number of registered Readouts.
+	 * 
+	 * @return the number of registered Readouts
+	 */
+	public int size()
+	{
+		return snapshot.readouts.size();
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement StringUpdatable.
+	 * 
+	 * @return an array of the registered StringUpdatables, which must not be modified
+	 */
+	public StringUpdatable[] getStringUpdatables()
+	{
+		return snapshot.stringUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement ColorUpdatable.
+	 * 
+	 * @return an array of the registered ColorUpdatables, which must not be modified
+	 */
+	public ColorUpdatable[] getColorUpdatables()
+	{
+		return snapshot.colorUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement NumberUpdatable.
+	 * 
+	 * @return an array of the registered NumberUpdatables, which must not be modified
+	 */
+	public NumberUpdatable[] getNumberUpdatables()
+	{
+		return snapshot.numberUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement LocationUpdatable.
+	 * 
+	 * @return an array of the registered LocationUpdatables, which must not be modified
+	 */
+	public LocationUpdatable[] getLocationUpdatables()
+	{
+		return snapshot.locationUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement ImageUpdatable.
+	 * 
+	 * @return an array of the registered ImageUpdatables, which must not be modified
+	 */
+	public ImageUpdatable[] getImageUpdatables()
+	{
+		return snapshot.imageUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement NumberBatchUpdatable. These Readouts are also
+	 * returned by {@link #getNumberUpdatables() getNumberUpdatables}.
+	 * 
+	 * @return an array of the registered NumberBatchUpdatables, which must not be modified
+	 */
+	public NumberBatchUpdatable[] getNumberBatchUpdatables()
+	{
+		return snapshot.numberBatchUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement StringBatchUpdatable. These Readouts are also
+	 * returned by {@link #getStringUpdatables() getStringUpdatables}.
+	 * 
+	 * @return an array of the registered StringBatchUpdatables, which must not be modified
+	 */
+	public StringBatchUpdatable[] getStringBatchUpdatables()
+	{
+		return snapshot.stringBatchUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement NumberUpdatable but not NumberBatchUpdatable.
+	 * 
+	 * @return an array of the registered NumberUpdatables that take one value at a time, which must not be modified
+	 */
+	public NumberUpdatable[] getPlainNumberUpdatables()
+	{
+		return snapshot.plainNumberUpdatables;
+	}
+	
+	/**
+	 * Returns all registered Readouts that implement StringUpdatable but not StringBatchUpdatable.
+	 * 
+	 * @return an array of the registered StringUpdatables that take one String at a time, which must not be modified
+	 */
+	public StringUpdatable[] getPlainStringUpdatables()
+	{
+		return snapshot.plainStringUpdatables;
+	}
+	
+	/**
+	 * An immutable view of the registry at one point in time. The map of Readouts is never
+	 * modified after the snapshot has been created.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class Snapshot
+	{
+		/**
+		 * Maps keys to their associated Readouts
+		 */
+		private final Map<String, Readout> readouts;
+		
+		/**
+		 * All registered Readouts that implement StringUpdatable
+		 */
+		private final StringUpdatable[] stringUpdatables;
+		
+		/**
+		 * All registered Readouts that implement ColorUpdatable
+		 */
+		private final ColorUpdatable[] colorUpdatables;
+		
+		/**
+		 * All registered Readouts that implement NumberUpdatable
+		 */
+		private final NumberUpdatable[] numberUpdatables;
+		
+		/**
+		 * All registered Readouts that implement LocationUpdatable
+		 */
+		private final LocationUpdatable[] locationUpdatables;
+		
+		/**
+		 * All registered Readouts that implement ImageUpdatable
+		 */
+		private final ImageUpdatable[] imageUpdatables;
+		
+		/**
+		 * All registered Readouts that implement NumberBatchUpdatable
+		 */
+		private final NumberBatchUpdatable[] numberBatchUpdatables;
+		
+		/**
+		 * All registered Readouts that implement StringBatchUpdatable
+		 */
+		private final StringBatchUpdatable[] stringBatchUpdatables;
+		
+		/**
+		 * All registered Readouts that implement NumberUpdatable but not NumberBatchUpdatable
+		 */
+		private final NumberUpdatable[] plainNumberUpdatables;
+		
+		/**
+		 * All registered Readouts that implement StringUpdatable but not StringBatchUpdatable
+		 */
+		private final StringUpdatable[] plainStringUpdatables;
+		
+		/**
+		 * Creates a snapshot of the specified Readouts, sorting every Readout by the Updatable
+		 * interfaces it implements. A Readout implementing several interfaces appears in several arrays.
+		 * 
+		 * @param readouts the map of Readouts, which must not be modified afterwards
+		 */
+		private Snapshot(Map<String, Readout> readouts)
+		{
+			this.readouts = readouts;
+			int numStrings = 0, numColors = 0, numNumbers = 0, numLocations = 0, numImages = 0;
+			int numNumberBatches = 0, numStringBatches = 0;
+			int numPlainNumbers = 0, numPlainStrings = 0;
+			for(Readout readout : readouts.values())
+			{
+				if(readout instanceof StringUpdatable) ++numStrings;
+				if(readout instanceof ColorUpdatable) ++numColors;
+				if(readout instanceof NumberUpdatable) ++numNumbers;
+				if(readout instanceof LocationUpdatable) ++numLocations;
+				if(readout instanceof ImageUpdatable) ++numImages;
+				if(readout instanceof NumberBatchUpdatable) ++numNumberBatches;
+				if(readout instanceof StringBatchUpdatable) ++numStringBatches;
+				if(readout instanceof NumberUpdatable && !(readout instanceof NumberBatchUpdatable)) ++numPlainNumbers;
+				if(readout instanceof StringUpdatable && !(readout instanceof StringBatchUpdatable)) ++numPlainStrings;
+			}
+			stringUpdatables = new StringUpdatable[numStrings];
+			colorUpdatables = new ColorUpdatable[numColors];
+			numberUpdatables = new NumberUpdatable[numNumbers];
+			locationUpdatables = new LocationUpdatable[numLocations];
+			imageUpdatables = new ImageUpdatable[numImages];
+			numberBatchUpdatables = new NumberBatchUpdatable[numNumberBatches];
+			stringBatchUpdatables = new StringBatchUpdatable[numStringBatches];
+			plainNumberUpdatables = new NumberUpdatable[numPlainNumbers];
+			plainStringUpdatables = new StringUpdatable[numPlainStrings];
+			numStrings = numColors = numNumbers = numLocations = numImages = 0;
+			numNumberBatches = numStringBatches = numPlainNumbers = numPlainStrings = 0;
+			for(Readout readout : readouts.values())
+			{
+				if(readout instanceof StringUpdatable) stringUpdatables[numStrings++] = (StringUpdatable)readout;
+				if(readout instanceof ColorUpdatable) colorUpdatables[numColors++] = (ColorUpdatable)readout;
+				if(readout instanceof NumberUpdatable) numberUpdatables[numNumbers++] = (NumberUpdatable)readout;
+				if(readout instanceof LocationUpdatable) locationUpdatables[numLocations++] = (LocationUpdatable)readout;
+				if(readout instanceof ImageUpdatable) imageUpdatables[numImages++] = (ImageUpdatable)readout;
+				if(readout instanceof NumberBatchUpdatable) numberBatchUpdatables[numNumberBatches++] = (NumberBatchUpdatable)readout;
+				if(readout instanceof StringBatchUpdatable) stringBatchUpdatables[numStringBatches++] = (StringBatchUpdatable)readout;
+				if(readout instanceof NumberUpdatable && !(readout instanceof NumberBatchUpdatable)) plainNumberUpdatables[numPlainNumbers++] = (NumberUpdatable)readout;
+				if(readout instanceof StringUpdatable && !(readout instanceof StringBatchUpdatable)) plainStringUpdatables[numPlainStrings++] = (StringUpdatable)readout;
+			}
+		}
+	}
+}
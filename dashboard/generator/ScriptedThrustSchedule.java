@@ -0,0 +1,149 @@
+package dashboard.generator;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Implements a {@link ThrustSchedule ThrustSchedule} made of segments of constant thrust. Each segment
+ * starts at a given step and lasts until the next segment starts. Before the first segment, the
+ * engines are off.
+ * <p>
+ * A ScriptedThrustSchedule can either be written by hand with {@link #addSegment(long, double, double) addSegment},
+ * or generated from a seed with {@link #random(long, int, long, double, double) random}, which always
+ * produces the same schedule for the same arguments.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class ScriptedThrustSchedule implements ThrustSchedule
+{
+	/**
+	 * The steps at which the segments start, in increasing order
+	 */
+	private long[] starts = new long[8];
+	
+	/**
+	 * The thrust from the rotational engines during each segment
+	 */
+	private double[] rotThrusts = new double[8];
+	
+	/**
+	 * The thrust from the main engines during each segment
+	 */
+	private double[] mainThrusts = new double[8];
+	
+	/**
+	 * The number of segments
+	 */
+	private int count = 0;
+	
+	/**
+	 * The segment found by the most recent lookup, which is checked first since steps are usually
+	 * requested in order
+	 */
+	private int cursor = -1;
+	
+	/**
+	 * Creates an empty ScriptedThrustSchedule, during which the engines are always off.
+	 */
+	public ScriptedThrustSchedule()
+	{
+		// Nothing to do
+	}
+	
+	/**
+	 * Creates a ScriptedThrustSchedule of random segments of equal length. The thrusts are drawn
+	 * uniformly from the given ranges by a {@link Random Random} with the specified seed, so the same
+	 * arguments always produce the same schedule.
+	 * 
+	 * @param seed the seed of the random number generator
+	 * @param segments the number of segments
+	 * @param segmentSteps the number of steps in each segment
+	 * @param maxRotThrust the largest magnitude of the thrust from the rotational engines
+	 * @param maxMainThrust the largest magnitude of the thrust from the main engines
+	 * @return a new ScriptedThrustSchedule with random segments
+	 * @throws IllegalArgumentException if the number of segments is negative or the segments are not positive in length
+	 */
+	public static ScriptedThrustSchedule random(long seed, int segments, long segmentSteps, double maxRotThrust, double maxMainThrust)
+	{
+		if(segments < 0 || segmentSteps <= 0) throw new IllegalArgumentException();
+		Random random = new Random(seed);
+		ScriptedThrustSchedule schedule = new ScriptedThrustSchedule();
+		for(int i = 0; i < segments; ++i)
+		{
+			double rotThrust = (2.0 * random.nextDouble() - 1.0) * maxRotThrust;
+			double mainThrust = (2.0 * random.nextDouble() - 1.0) * maxMainThrust;
+			schedule.addSegment(i * segmentSteps, rotThrust, mainThrust);
+		}
+		return schedule;
+	}
+	
+	/**
+	 * Adds a segment of constant thrust, starting at the specified step. Segments must be added in
+	 * order of their starting steps.
+	 * 
+	 * @param start the step at which the segment starts
+	 * @param rotThrust the thrust from the rotational engines during the segment
+	 * @param mainThrust the thrust from the main engines during the segment
+	 * @return the current ScriptedThrustSchedule
+	 * @throws IllegalArgumentException if the segment does not start after the previous segment
+	 */
+	public synchronized ScriptedThrustSchedule addSegment(long start, double rotThrust, double mainThrust)
+	{
+		if(start < 0 || (count > 0 && start <= starts[count - 1])) throw new IllegalArgumentException();
+		if(count == starts.length)
+		{
+			starts = Arrays.copyOf(starts, count * 2);
+			rotThrusts = Arrays.copyOf(rotThrusts, count * 2);
+			mainThrusts = Arrays.copyOf(mainThrusts, count * 2);
+		}
+		starts[count] = start;
+		rotThrusts[count] = rotThrust;
+		mainThrusts[count] = mainThrust;
+		++count;
+		return this;
+	}
+	
+	/**
+	 * Returns the number of segments in the schedule.
+	 * 
+	 * @return the number of segments in the schedule
+	 */
+	public synchronized int getSegmentCount()
+	{
+		return count;
+	}
+	
+	@Override
+	public synchronized double getRotThrust(long step)
+	{
+		int segment = findSegment(step);
+		return segment < 0 ? 0.0 : rotThrusts[segment];
+	}
+	
+	@Override
+	public synchronized double getMainThrust(long step)
+	{
+		int segment = findSegment(step);
+		return segment < 0 ? 0.0 : mainThrusts[segment];
+	}
+	
+	/**
+	 * Finds the segment that contains the specified step. The segment of the previous lookup and the
+	 * one after it are checked before falling back to a binary search.
+	 * 
+	 * @param step the index of the step
+	 * @return the index of the segment, or -1 if the step comes before the first segment
+	 */
+	private int findSegment(long step)
+	{
+		if(cursor >= 0 && step >= starts[cursor])
+		{
+			if(cursor + 1 == count || step < starts[cursor + 1]) return cursor;
+			if(cursor + 2 == count || step < starts[cursor + 2]) return ++cursor;
+		}
+		int index = Arrays.binarySearch(starts, 0, count, step);
+		cursor = index >= 0 ? index : -index - 2;
+		return cursor;
+	}
+}
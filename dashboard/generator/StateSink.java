@@ -0,0 +1,25 @@
+package dashboard.generator;
+
+/**
+ * Defines the functionality of a class that receives the state of a ship after every step of a
+ * headless {@link DatumGenerator DatumGenerator} (see {@link DatumGenerator#simulate(ThrustSchedule, long, StateSink) simulate}).
+ * The state is passed as primitives, so that a run does not allocate any objects per step.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public interface StateSink
+{
+	/**
+	 * Receives the state of the ship after the specified step.
+	 * 
+	 * @param step the index of the step that was just simulated, starting at 0
+	 * @param x the x-coordinate of the ship
+	 * @param y the y-coordinate of the ship
+	 * @param bearingX the x-component of the unit vector pointing along the ship's heading
+	 * @param bearingY the y-component of the unit vector pointing along the ship's heading
+	 * @param speed the speed of the ship
+	 * @param rotSpeed the signed rotational speed of the ship
+	 */
+	public void accept(long step, double x, double y, double bearingX, double bearingY, double speed, double rotSpeed);
+}
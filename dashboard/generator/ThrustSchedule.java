@@ -0,0 +1,30 @@
+package dashboard.generator;
+
+/**
+ * Defines the thrust from a ship's engines as a function of the step of the physics engine. A
+ * ThrustSchedule drives a headless {@link DatumGenerator DatumGenerator} (see
+ * {@link DatumGenerator#simulate(ThrustSchedule, long, StateSink) simulate}) in place of the controller.
+ * <p>
+ * The thrust for a given step must always be the same, so that a run can be repeated exactly.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public interface ThrustSchedule
+{
+	/**
+	 * Returns the thrust from the rotational engines during the specified step.
+	 * 
+	 * @param step the index of the step, starting at 0
+	 * @return the thrust from the rotational engines, positive to turn counterclockwise
+	 */
+	public double getRotThrust(long step);
+	
+	/**
+	 * Returns the thrust from the main engines during the specified step.
+	 * 
+	 * @param step the index of the step, starting at 0
+	 * @return the thrust from the main engines, positive to move forward
+	 */
+	public double getMainThrust(long step);
+}
@@ -1,16 +1,30 @@
 package dashboard.program;
 
 import java.awt.Color;
+import java.awt.event.ActionEvent;
+import java.awt.event.ActionListener;
 import java.awt.event.MouseEvent;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
+import javax.swing.SwingUtilities;
+import javax.swing.Timer;
+
+import dashboard.control.Button;
 import dashboard.control.Control;
+import dashboard.generator.Generator;
+import dashboard.readout.Readout;
+import dashboard.readout.RedrawScheduler;
 import dashboard.readout.StringUpdatable;
+import dashboard.util.ThreadMode;
+import acm.graphics.GCanvas;
 import acm.graphics.GCompound;
 import acm.graphics.GObject;
 import acm.graphics.GPoint;
 import acm.graphics.GRect;
+import acm.graphics.GRectangle;
 import acm.program.*;
 
 /**
@@ -21,6 +35,21 @@ import acm.program.*;
  */
 public abstract class DashboardProgram extends GraphicsProgram
 {
+	/**
+	 * Used to draw a frame at the maximum frame rate, whether or not any Readout has changed
+	 */
+	public static final int FRAMES_FIXED_RATE = 0;
+	
+	/**
+	 * Used to draw a frame only when a Readout has changed, at no more than the maximum frame rate
+	 */
+	public static final int FRAMES_ON_CHANGE = 1;
+	
+	/**
+	 * The number of nanoseconds in a second
+	 */
+	private static final long NANOS_PER_SECOND = 1000000000L;
+	
 	/**
 	 * The map from keys (Strings) to the widgets (GObjects) that make up the dashboard
 	 */
@@ -37,6 +66,21 @@ public abstract class DashboardProgram extends GraphicsProgram
 	 */
 	private Map<String, StringUpdatable> commandOutputs;
 	
+	/**
+	 * The map from keys (Strings) to the Generators that drive the dashboard's Readouts
+	 */
+	private Map<String, Generator> generators;
+	
+	/**
+	 * The kind of thread on which the dashboard's Generators and Button actions run
+	 */
+	private int threadMode = ThreadMode.PLATFORM;
+	
+	/**
+	 * The frame loop that draws the pending values of the dashboard's Readouts
+	 */
+	private final FrameLoop frameLoop;
+	
 	/**
 	 * A GCompound containing all the bounding boxes of the dashboard's widgets. Used for calculating
 	 * the dashboard's left x, top y, total width, and total height
@@ -67,10 +111,25 @@ public abstract class DashboardProgram extends GraphicsProgram
 		widgets = new HashMap<String, GObject>();
 		sizes = new HashMap<String, GRect>();
 		commandOutputs = new HashMap<String, StringUpdatable>();
+		generators = new HashMap<String, Generator>();
+		frameLoop = new FrameLoop();
 		union = new GCompound();
 		calculateXY();
 	}
 	
+	/**
+	 * Creates the canvas on which the dashboard is drawn. The canvas paints straight into the clipped,
+	 * double-buffered graphics that Swing provides, so that repainting part of the canvas only costs as
+	 * much as that part.
+	 * 
+	 * @return the canvas on which the dashboard is drawn
+	 */
+	@Override
+	protected GCanvas createGCanvas()
+	{
+		return new DashboardCanvas();
+	}
+	
 	/**
 	 * Adds the specified widget to the DashboardProgram's widget roster and draws it
 	 * on the canvas
@@ -86,6 +145,8 @@ public abstract class DashboardProgram extends GraphicsProgram
 		sizes.put(key, size);
 		union.add(size);
 		add(widget);
+		applyThreadMode(widget);
+		applyRedrawScheduler(widget, frameLoop);
 		checkXY(widget);
 	}
 	
@@ -106,6 +167,8 @@ public abstract class DashboardProgram extends GraphicsProgram
 		sizes.put(key, size);
 		union.add(size, x, y);
 		add(widget, x, y);
+		applyThreadMode(widget);
+		applyRedrawScheduler(widget, frameLoop);
 		checkXY(widget);
 	}
 	
@@ -125,6 +188,8 @@ public abstract class DashboardProgram extends GraphicsProgram
 		sizes.put(key, size);
 		union.add(size, pt);
 		add(widget, pt);
+		applyThreadMode(widget);
+		applyRedrawScheduler(widget, frameLoop);
 		checkXY(widget);
 	}
 	
@@ -140,6 +205,7 @@ public abstract class DashboardProgram extends GraphicsProgram
 		if(!widgets.containsKey(key)) return;
 		GObject widget = widgets.get(key);
 		remove(widget);
+		applyRedrawScheduler(widget, null);
 		widgets.remove(widget);
 		GRect size = sizes.get(key);
 		union.remove(size);
@@ -316,6 +382,178 @@ public abstract class DashboardProgram extends GraphicsProgram
 		commandOutputs.remove(key);
 	}
 	
+	/**
+	 * Registers a Generator with the DashboardProgram, so that it follows the dashboard's thread mode.
+	 * 
+	 * @param key a handle that refers to the Generator
+	 * @param generator the Generator to be added
+	 */
+	public final void addGenerator(String key, Generator generator)
+	{
+		if(generators.containsKey(key)) return;
+		generators.put(key, generator);
+		generator.setThreadMode(threadMode);
+	}
+	
+	/**
+	 * Removes the Generator associated with the specified key from the DashboardProgram. The Generator
+	 * itself is not deactivated. If the Generator could not be located, no action is taken.
+	 * 
+	 * @param key the key that is bound to the Generator
+	 */
+	public final void removeGenerator(String key)
+	{
+		if(!generators.containsKey(key)) return;
+		generators.remove(key);
+	}
+	
+	/**
+	 * Returns the Generator associated with the specified key. If the Generator could not be
+	 * located, null is returned.
+	 * 
+	 * @param key the key that is bound to the Generator
+	 * @return the Generator associated with the specified key
+	 */
+	public final Generator getGenerator(String key)
+	{
+		if(!generators.containsKey(key)) return null;
+		return generators.get(key);
+	}
+	
+	/**
+	 * Sets the kind of thread on which the dashboard's Generators and Button actions run. The mode
+	 * applies to every Button inside a widget added with addWidget and to every Generator added with
+	 * {@link #addGenerator(String, Generator) addGenerator}, including those added later. The mode must be
+	 * either {@link ThreadMode#PLATFORM ThreadMode.PLATFORM} or {@link ThreadMode#VIRTUAL ThreadMode.VIRTUAL}.
+	 * If virtual threads are not supported by the JVM, platform threads are used instead. Buttons that were
+	 * switched to {@link ThreadMode#INLINE ThreadMode.INLINE}, such as those controlling a DatumGenerator,
+	 * keep that mode.
+	 * 
+	 * @param threadMode the kind of thread on which the dashboard's Generators and Button actions run
+	 * @throws IllegalArgumentException if an invalid mode is specified
+	 */
+	public final void setThreadMode(int threadMode)
+	{
+		if(!ThreadMode.isValid(threadMode)) throw new IllegalArgumentException();
+		this.threadMode = threadMode;
+		for(String key : widgets.keySet())
+		{
+			applyThreadMode(widgets.get(key));
+		}
+		for(String key : generators.keySet())
+		{
+			generators.get(key).setThreadMode(threadMode);
+		}
+	}
+	
+	/**
+	 * Returns the kind of thread on which the dashboard's Generators and Button actions run.
+	 * 
+	 * @return the thread mode of the dashboard
+	 */
+	public final int getThreadMode()
+	{
+		return threadMode;
+	}
+	
+	/**
+	 * Applies the dashboard's thread mode to the specified widget and every Button it contains, except
+	 * Buttons in {@link ThreadMode#INLINE ThreadMode.INLINE} mode, whose mode was chosen by their owner.
+	 * 
+	 * @param widget the widget to which the thread mode is applied
+	 */
+	private void applyThreadMode(GObject widget)
+	{
+		if(widget instanceof Button && ((Button)widget).getThreadMode() != ThreadMode.INLINE) ((Button)widget).setThreadMode(threadMode);
+		if(!(widget instanceof GCompound)) return;
+		GCompound compound = (GCompound)widget;
+		for(int i = 0; i < compound.getElementCount(); ++i)
+		{
+			applyThreadMode(compound.getElement(i));
+		}
+	}
+	
+	/**
+	 * Attaches the specified widget and every Readout it contains to the specified scheduler.
+	 * 
+	 * @param widget the widget to which the scheduler is applied
+	 * @param scheduler the scheduler, or null to detach the Readouts from the frame loop
+	 */
+	private void applyRedrawScheduler(GObject widget, RedrawScheduler scheduler)
+	{
+		if(widget instanceof Readout) ((Readout)widget).setRedrawScheduler(scheduler);
+		if(!(widget instanceof GCompound)) return;
+		GCompound compound = (GCompound)widget;
+		for(int i = 0; i < compound.getElementCount(); ++i)
+		{
+			applyRedrawScheduler(compound.getElement(i), scheduler);
+		}
+	}
+	
+	/**
+	 * Sets the maximum number of frames per second that the dashboard draws. All changes to the
+	 * Readouts added with addWidget that arrive within one frame are drawn together, and the canvas is
+	 * repainted once per frame. Only the union of the {@link Readout#getDirtyBounds() dirty bounds} of
+	 * the changed Readouts is repainted. The maximum frame rate is 60 by default.
+	 * 
+	 * @param maxFrameRate the maximum number of frames per second
+	 * @throws IllegalArgumentException if the frame rate is not positive
+	 */
+	public final void setMaxFrameRate(int maxFrameRate)
+	{
+		if(maxFrameRate <= 0) throw new IllegalArgumentException();
+		frameLoop.setMaxFrameRate(maxFrameRate);
+	}
+	
+	/**
+	 * Returns the maximum number of frames per second that the dashboard draws.
+	 * 
+	 * @return the maximum number of frames per second
+	 */
+	public final int getMaxFrameRate()
+	{
+		return frameLoop.maxFrameRate;
+	}
+	
+	/**
+	 * Sets when the dashboard draws a frame. The mode must be either {@link #FRAMES_FIXED_RATE FRAMES_FIXED_RATE},
+	 * which repaints the whole canvas at the maximum frame rate even if nothing has changed, or
+	 * {@link #FRAMES_ON_CHANGE FRAMES_ON_CHANGE}, which only repaints the regions of the Readouts that have
+	 * changed and stays idle otherwise. The mode is {@link #FRAMES_ON_CHANGE FRAMES_ON_CHANGE} by default.
+	 * 
+	 * @param frameMode when the dashboard draws a frame
+	 * @throws IllegalArgumentException if an invalid mode is specified
+	 */
+	public final void setFrameMode(int frameMode)
+	{
+		if(frameMode != FRAMES_FIXED_RATE && frameMode != FRAMES_ON_CHANGE) throw new IllegalArgumentException();
+		frameLoop.frameMode = frameMode;
+		frameLoop.wake();
+	}
+	
+	/**
+	 * Returns when the dashboard draws a frame.
+	 * 
+	 * @return the frame mode of the dashboard
+	 */
+	public final int getFrameMode()
+	{
+		return frameLoop.frameMode;
+	}
+	
+	/**
+	 * Returns the number of frames per second that the dashboard actually drew, measured over the
+	 * most recent second in which it drew frames. If no frame has been drawn in the last second,
+	 * 0.0 is returned.
+	 * 
+	 * @return the achieved frame rate, in frames per second
+	 */
+	public final double getAchievedFrameRate()
+	{
+		if(System.nanoTime() - frameLoop.lastFrameTime > NANOS_PER_SECOND) return 0.0;
+		return frameLoop.achievedFrameRate;
+	}
+	
 	/**
 	 * Draws a background behind the entire dashboard based on the bounding box
 	 * surrounding all widgets on screen. This method should be called after all
@@ -342,4 +580,224 @@ public abstract class DashboardProgram extends GraphicsProgram
 		if(background == null) return;
 		remove(background);
 	}
+	
+	/**
+	 * Collects the Readouts that have new values and draws them together, once per frame, on the
+	 * event dispatch thread. Automatic repainting of the canvas is suspended while the Readouts are
+	 * drawn, so that the canvas is repainted only once per frame.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private class FrameLoop implements RedrawScheduler, ActionListener
+	{
+		/**
+		 * The Readouts that have new values to draw in the next frame
+		 */
+		private final ConcurrentLinkedQueue<Readout> dirty;
+		
+		/**
+		 * Whether the timer is running or has been asked to start
+		 */
+		private final AtomicBoolean awake;
+		
+		/**
+		 * Fires once per frame on the event dispatch thread
+		 */
+		private final Timer timer;
+		
+		/**
+		 * Starts the timer on the event dispatch thread
+		 */
+		private final Runnable starter;
+		
+		/**
+		 * The maximum number of frames per second
+		 */
+		private volatile int maxFrameRate = 60;
+		
+		/**
+		 * When a frame is drawn, either {@link DashboardProgram#FRAMES_FIXED_RATE FRAMES_FIXED_RATE} or
+		 * {@link DashboardProgram#FRAMES_ON_CHANGE FRAMES_ON_CHANGE}
+		 */
+		private volatile int frameMode = FRAMES_ON_CHANGE;
+		
+		/**
+		 * The time at which the last frame was drawn, in nanoseconds
+		 */
+		private volatile long lastFrameTime;
+		
+		/**
+		 * The number of frames per second drawn during the last complete measurement window
+		 */
+		private volatile double achievedFrameRate;
+		
+		/**
+		 * The time at which the current measurement window began, in nanoseconds
+		 */
+		private long windowStart;
+		
+		/**
+		 * The number of frames drawn during the current measurement window
+		 */
+		private int windowFrames;
+		
+		/**
+		 * Creates an idle FrameLoop.
+		 */
+		private FrameLoop()
+		{
+			dirty = new ConcurrentLinkedQueue<Readout>();
+			awake = new AtomicBoolean();
+			timer = new Timer(1000 / maxFrameRate, this);
+			timer.setCoalesce(true);
+			lastFrameTime = windowStart = System.nanoTime() - NANOS_PER_SECOND;
+			starter = new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					start();
+				}
+			};
+		}
+		
+		@Override
+		public void schedule(Readout readout)
+		{
+			dirty.add(readout);
+			wake();
+		}
+		
+		/**
+		 * Makes sure that the timer is running, so that the next frame will be drawn. This method may
+		 * be called from any thread.
+		 */
+		private void wake()
+		{
+			if(awake.compareAndSet(false, true)) SwingUtilities.invokeLater(starter);
+		}
+		
+		/**
+		 * Starts the timer, delaying the first frame so that the maximum frame rate is respected.
+		 */
+		private void start()
+		{
+			if(timer.isRunning()) return;
+			long period = NANOS_PER_SECOND / maxFrameRate;
+			long wait = lastFrameTime + period - System.nanoTime();
+			timer.setInitialDelay(wait > 0 ? (int)(wait / 1000000L) : 0);
+			timer.start();
+		}
+		
+		/**
+		 * Changes the maximum number of frames per second.
+		 * 
+		 * @param maxFrameRate the maximum number of frames per second, which must be positive
+		 */
+		private void setMaxFrameRate(int maxFrameRate)
+		{
+			this.maxFrameRate = maxFrameRate;
+			timer.setDelay(Math.max(1, 1000 / maxFrameRate));
+		}
+		
+		/**
+		 * Draws one frame. Only the Readouts that were waiting when the frame began are flushed, so that
+		 * a Readout updated faster than the frame rate cannot keep the frame from finishing. Unless the
+		 * frame mode is {@link DashboardProgram#FRAMES_FIXED_RATE FRAMES_FIXED_RATE}, only the union of the
+		 * flushed Readouts' dirty bounds is repainted.
+		 */
+		@Override
+		public void actionPerformed(ActionEvent e)
+		{
+			if(dirty.isEmpty() && frameMode == FRAMES_ON_CHANGE)
+			{
+				timer.stop();
+				awake.set(false);
+				if(!dirty.isEmpty()) wake();
+				return;
+			}
+			boolean full = frameMode == FRAMES_FIXED_RATE;
+			double minX = Double.POSITIVE_INFINITY, minY = Double.POSITIVE_INFINITY;
+			double maxX = Double.NEGATIVE_INFINITY, maxY = Double.NEGATIVE_INFINITY;
+			GCanvas canvas = getGCanvas();
+			canvas.setAutoRepaintFlag(false);
+			try
+			{
+				for(int n = dirty.size(); n > 0; --n)
+				{
+					Readout readout = dirty.poll();
+					if(readout == null) break;
+					readout.flush();
+					if(full) continue;
+					GRectangle bounds = readout.getDirtyBounds();
+					GPoint corner = readout.getCanvasPoint(bounds.getX(), bounds.getY());
+					minX = Math.min(minX, corner.getX());
+					minY = Math.min(minY, corner.getY());
+					maxX = Math.max(maxX, corner.getX() + bounds.getWidth());
+					maxY = Math.max(maxY, corner.getY() + bounds.getHeight());
+				}
+			}
+			finally
+			{
+				canvas.setAutoRepaintFlag(true);
+			}
+			if(full) canvas.repaint();
+			else if(minX <= maxX)
+			{
+				// Widen the region by a pixel on each side to cover outlines and rounding
+				int left = (int)Math.floor(minX) - 1;
+				int top = (int)Math.floor(minY) - 1;
+				canvas.repaint(left, top, (int)Math.ceil(maxX) + 1 - left, (int)Math.ceil(maxY) + 1 - top);
+			}
+			countFrame();
+		}
+		
+		/**
+		 * Records that a frame was drawn and updates the achieved frame rate once per second.
+		 */
+		private void countFrame()
+		{
+			long now = System.nanoTime();
+			long idle = now - lastFrameTime;
+			lastFrameTime = now;
+			if(idle > NANOS_PER_SECOND)
+			{
+				windowStart = now;
+				windowFrames = 0;
+				return;
+			}
+			++windowFrames;
+			long elapsed = now - windowStart;
+			if(elapsed < NANOS_PER_SECOND) return;
+			achievedFrameRate = (double)windowFrames * NANOS_PER_SECOND / elapsed;
+			windowStart = now;
+			windowFrames = 0;
+		}
+	}
+	
+	/**
+	 * A GCanvas that does not keep its own offscreen image. A plain GCanvas redraws every object into a
+	 * full-size offscreen image on every repaint, no matter how small the repainted region is; this canvas
+	 * instead relies on Swing's double buffering, whose graphics are clipped to the repainted region.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static class DashboardCanvas extends GCanvas
+	{
+		/**
+		 * The serialization version of the DashboardCanvas
+		 */
+		private static final long serialVersionUID = 1L;
+		
+		/**
+		 * Does nothing, so that the canvas paints into the graphics it is given.
+		 */
+		@Override
+		protected void initOffscreenImage()
+		{
+			// Do nothing
+		}
+	}
 }
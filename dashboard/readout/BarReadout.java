@@ -161,4 +161,15 @@ public final class BarReadout extends LevelReadout
 			bar.setSize(bar.getWidth(), newHeight);
 		}
 	}
+	
+	/**
+	 * Returns the bounds of the BarReadout's back, which contains every possible length of the bar.
+	 * 
+	 * @return the bounds of the BarReadout's back
+	 */
+	@Override
+	public GRectangle getDirtyBounds()
+	{
+		return back.getBounds();
+	}
 }
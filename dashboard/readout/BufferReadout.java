@@ -14,7 +14,7 @@ import acm.graphics.*;
  * @author Mark Sabini
  *
  */
-public final class BufferReadout extends Readout implements Incrementable, StringUpdatable
+public final class BufferReadout extends Readout implements Incrementable, StringBatchUpdatable
 {
 	/**
 	 * The buffer of all the lines of text associated with the BufferReadout
@@ -169,7 +169,7 @@ public final class BufferReadout extends Readout implements Incrementable, Strin
 		initDisplay();
 		
 		// Clear and update the display
-		refresh();
+		requestRedraw();
 		
 		update("DISP:" + maxLines + "X" + maxLineWidth);
 	}
@@ -180,8 +180,11 @@ public final class BufferReadout extends Readout implements Incrementable, Strin
 	@Override
 	public void increment()
 	{
-		if(currIndex < messages.size() - 1) ++currIndex;
-		refresh();
+		synchronized(messages)
+		{
+			if(currIndex < messages.size() - 1) ++currIndex;
+		}
+		requestRedraw();
 	}
 	
 	/**
@@ -190,8 +193,11 @@ public final class BufferReadout extends Readout implements Incrementable, Strin
 	@Override
 	public void decrement()
 	{
-		if(currIndex > 0) --currIndex;
-		refresh();
+		synchronized(messages)
+		{
+			if(currIndex > 0) --currIndex;
+		}
+		requestRedraw();
 	}
 	
 	/**
@@ -199,43 +205,85 @@ public final class BufferReadout extends Readout implements Incrementable, Strin
 	 */
 	public void clear()
 	{
-		messages.clear();
-		currIndex = 0;
-		refresh();
+		synchronized(messages)
+		{
+			messages.clear();
+			currIndex = 0;
+		}
+		requestRedraw();
 	}
 	
 	/**
 	 * Updates the BufferReadout with the specified message. Internally,
-	 * the BufferReadout will only store what can fit on its screen.
+	 * the BufferReadout will only store what can fit on its screen. Every message
+	 * is stored immediately, but the screen is only redrawn on the event dispatch thread.
 	 */
 	@Override
 	public void update(String msg)
 	{
 		if(isFrozen()) return;
+		synchronized(messages)
+		{
+			append(msg);
+		}
+		requestRedraw();
+	}
+	
+	/**
+	 * Updates the BufferReadout with a batch of messages, as if each had been passed to
+	 * {@link #update(String) update} in order. The screen is redrawn at most once for the whole batch.
+	 */
+	@Override
+	public void update(String[] msgs, long[] timestamps, int count)
+	{
+		if(isFrozen() || count == 0) return;
+		synchronized(messages)
+		{
+			for(int i = 0; i < count; ++i)
+			{
+				append(msgs[i]);
+			}
+		}
+		requestRedraw();
+	}
+	
+	/**
+	 * Adds a message to the end of the buffer, truncating it to the width of the screen and
+	 * discarding the oldest message if the buffer is full. Must be called while holding the lock
+	 * on the buffer.
+	 * 
+	 * @param msg the message to add
+	 */
+	private void append(String msg)
+	{
 		if(messages.size() == BUFFER_SIZE) messages.remove(0);
 		if(msg.length() > maxLineWidth) messages.add(msg.substring(0, maxLineWidth));
 		else messages.add(msg);
-		increment();
+		if(currIndex < messages.size() - 1) ++currIndex;
 	}
 	
 	/**
-	 * Clears the entire display and redraws all the text. Called after
-	 * updating, incrementing, or decrementing the BufferReadout.
+	 * Clears the entire display and redraws all the text. Called on the event
+	 * dispatch thread after updating, incrementing, or decrementing the BufferReadout.
 	 */
-	private void refresh()
+	@Override
+	protected void redraw()
 	{
-		int numPrinted = 0;
-		for(GLabel l : display)
+		synchronized(messages)
 		{
-			l.setLabel("");
-		}
-		if(!messages.isEmpty())
-		{
-			for(int i = currIndex; i >= 0; --i)
+			int numPrinted = 0;
+			for(GLabel l : display)
+			{
+				l.setLabel("");
+			}
+			if(!messages.isEmpty())
 			{
-				if(numPrinted >= maxLines) break;
-				display.get(numPrinted).setLabel(messages.get(i));
-				++numPrinted;
+				for(int i = currIndex; i >= 0; --i)
+				{
+					if(numPrinted >= maxLines) break;
+					display.get(numPrinted).setLabel(messages.get(i));
+					++numPrinted;
+				}
 			}
 		}
 	}
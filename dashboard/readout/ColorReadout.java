@@ -1,7 +1,9 @@
 package dashboard.readout;
 import java.awt.Color;
+import java.util.concurrent.atomic.AtomicReference;
 
 import acm.graphics.GRect;
+import acm.graphics.GRectangle;
 
 /**
  * Implements a Readout that represents an LED status light.
@@ -21,6 +23,11 @@ public final class ColorReadout extends Readout implements ColorUpdatable
 	 */
 	private GRect colorDisplay;
 	
+	/**
+	 * The most recent color that has not been drawn yet, or null if there is none
+	 */
+	private final AtomicReference<Color> latestColor = new AtomicReference<Color>();
+	
 	/**
 	 * Builder for the ColorReadout class.
 	 * 
@@ -84,6 +91,28 @@ public final class ColorReadout extends Readout implements ColorUpdatable
 	public void update(Color color)
 	{
 		if(isFrozen()) return;
-		colorDisplay.setFillColor(color);
+		latestColor.set(color);
+		requestRedraw();
+	}
+	
+	/**
+	 * Fills the color display with the most recent color.
+	 */
+	@Override
+	protected void redraw()
+	{
+		Color color = latestColor.getAndSet(null);
+		if(color != null) colorDisplay.setFillColor(color);
+	}
+	
+	/**
+	 * Returns the bounds of the color display, which is the only part of the ColorReadout that changes.
+	 * 
+	 * @return the bounds of the color display
+	 */
+	@Override
+	public GRectangle getDirtyBounds()
+	{
+		return colorDisplay.getBounds();
 	}
 }
@@ -1,8 +1,9 @@
 package dashboard.readout;
 
 import java.awt.Color;
+import java.util.concurrent.atomic.AtomicReference;
 
-import dashboard.util.GPointMath;
+import dashboard.util.Vector2D;
 import acm.graphics.GOval;
 import acm.graphics.GPoint;
 import acm.graphics.GPolygon;
@@ -46,7 +47,12 @@ public final class CompassReadout extends Readout implements LocationUpdatable
 	/**
 	 * The current goal towards which the CompassReadout's needle should point
 	 */
-	private GPoint goal;
+	private volatile GPoint goal;
+	
+	/**
+	 * The most recent position and bearing that have not been drawn yet, or null if there are none
+	 */
+	private final AtomicReference<GPoint[]> latestLocation = new AtomicReference<GPoint[]>();
 	
 	/**
 	 * The position of the most recent update
@@ -58,6 +64,11 @@ public final class CompassReadout extends Readout implements LocationUpdatable
 	 */
 	private GPoint bearing;
 	
+	/**
+	 * Scratch vectors reused by {@link #calculateAngle(GPoint) calculateAngle}, so that pointing the needle does not allocate
+	 */
+	private final Vector2D disp = new Vector2D(), heading = new Vector2D();
+	
 	/**
 	 * The ratio of the width of the needle's base to the CompassReadout's face diameter
 	 */
@@ -184,7 +195,7 @@ public final class CompassReadout extends Readout implements LocationUpdatable
 		// Only draw the needle if all of goal, position, and bearing are not null.
 		if(goal != null && position != null && bearing != null)
 		{
-			initNeedle(calculateAngle());
+			initNeedle(calculateAngle(goal));
 			add(needle, base.getWidth() / 2.0, base.getHeight() / 2.0);
 		}
 		else center.setVisible(true);
@@ -200,37 +211,19 @@ public final class CompassReadout extends Readout implements LocationUpdatable
 	{
 		if(isFrozen()) return;
 		if((position == null && bearing != null) || (position != null && bearing == null)) throw new IllegalStateException();
-		if(goal == null)
-		{
-			this.position = position;
-			this.bearing = bearing;
-			return;
-		}
-		if(needle != null) remove(needle);
-		// If goal is not null, update the needle.
-		if(position != null && bearing != null)
-		{
-			center.setVisible(false);
-			this.position = position;
-			this.bearing = bearing;
-			initNeedle(calculateAngle());
-			add(needle, base.getWidth() / 2.0, base.getHeight() / 2.0);
-		}
-		else
-		{
-			center.setVisible(true);
-		}
+		latestLocation.set(new GPoint[] {position, bearing});
+		requestRedraw();
 	}
 	
 	/**
-	 * Updates the CompassReadout's goal and immediately redraws the needle.
+	 * Updates the CompassReadout's goal and redraws the needle.
 	 * 
 	 * @param goal the new goal for the CompassReadout
 	 */
 	public void updateGoal(GPoint goal)
 	{
 		this.goal = goal;
-		update(position, bearing);
+		requestRedraw();
 	}
 	
 	/**
@@ -239,10 +232,36 @@ public final class CompassReadout extends Readout implements LocationUpdatable
 	public void clear()
 	{
 		goal = null;
-		position = null;
-		bearing = null;
+		latestLocation.set(new GPoint[] {null, null});
+		requestRedraw();
+	}
+	
+	/**
+	 * Redraws the needle using the most recent position, bearing, and goal. If any of them
+	 * is null, the needle is hidden and the center is shown instead.
+	 */
+	@Override
+	protected void redraw()
+	{
+		GPoint[] location = latestLocation.getAndSet(null);
+		if(location != null)
+		{
+			position = location[0];
+			bearing = location[1];
+		}
+		GPoint goal = this.goal;
 		if(needle != null) remove(needle);
-		center.setVisible(true);
+		needle = null;
+		if(goal != null && position != null && bearing != null)
+		{
+			center.setVisible(false);
+			initNeedle(calculateAngle(goal));
+			add(needle, base.getWidth() / 2.0, base.getHeight() / 2.0);
+		}
+		else
+		{
+			center.setVisible(true);
+		}
 	}
 	
 	/**
@@ -267,15 +286,14 @@ public final class CompassReadout extends Readout implements LocationUpdatable
 	/**
 	 * Calculates and returns the angle at which the needle should be drawn in {@link #initNeedle(double) initNeedle}.
 	 * 
+	 * @param goal the goal towards which the needle should point
 	 * @return the angle at which the needle should be drawn
 	 */
-	private double calculateAngle()
+	private double calculateAngle(GPoint goal)
 	{
-		GPoint disp = GPointMath.diff(goal, position);
-		double angleCos = GPointMath.dot(bearing, disp) / (GPointMath.norm(bearing) * GPointMath.norm(disp));
-		if(angleCos == -1.0) return 180.0; // Edge case. TODO: improve for fp arithmetic.
-		double unsignedAngle = Math.acos(angleCos);
-		double sign = Math.signum(GPointMath.cross(bearing, disp));
-		return sign * Math.toDegrees(unsignedAngle);
+		disp.set(goal).sub(position);
+		heading.set(bearing);
+		// The signed angle from the bearing to the goal, which is also correct when they point in opposite directions
+		return Math.toDegrees(Math.atan2(heading.cross(disp), heading.dot(disp)));
 	}
 }
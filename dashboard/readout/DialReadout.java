@@ -185,4 +185,15 @@ public final class DialReadout extends LevelReadout
 	{
 		indicator.setSweepAngle((level * sweepAngle) / numDivisions);
 	}
+	
+	/**
+	 * Returns the bounds of the DialReadout's dial, which contains every possible sweep of the indicator.
+	 * 
+	 * @return the bounds of the dial
+	 */
+	@Override
+	public GRectangle getDirtyBounds()
+	{
+		return dial.getBounds();
+	}
 }
@@ -1,6 +1,7 @@
 package dashboard.readout;
 
 import java.awt.Color;
+import java.util.concurrent.atomic.AtomicReference;
 
 import acm.graphics.GImage;
 import acm.graphics.GLine;
@@ -28,13 +29,18 @@ public final class ImageReadout extends Readout implements ImageUpdatable
 	/**
 	 * Whether the ImageReadout is on
 	 */
-	private boolean on;
+	private volatile boolean on;
 	
 	/**
 	 * The image that the ImageReadout is displaying
 	 */
 	private GImage image;
 	
+	/**
+	 * The most recent image that the ImageReadout should display, or null if it should display a blank screen
+	 */
+	private final AtomicReference<GImage> latestImage = new AtomicReference<GImage>();
+	
 	/**
 	 * The width of the border around the ImageReadout's screen (different from spacing)
 	 */
@@ -155,10 +161,8 @@ public final class ImageReadout extends Readout implements ImageUpdatable
 		if(isFrozen()) return;
 		if(!on || image == null) return;
 		// Else, update the image.
-		offScreen.setVisible(true);
-		this.image = image;
-		image.setSize(onScreen.getWidth(), onScreen.getHeight());
-		add(image, onScreen.getX(), onScreen.getY());
+		latestImage.set(image);
+		requestRedraw();
 	}
 
 	/**
@@ -167,12 +171,8 @@ public final class ImageReadout extends Readout implements ImageUpdatable
 	 */
 	public void clear()
 	{
-		if(image != null)
-		{
-			remove(image);
-			image = null;
-		}
-		offScreen.setVisible(false);
+		latestImage.set(null);
+		requestRedraw();
 	}
 	
 	/**
@@ -184,11 +184,28 @@ public final class ImageReadout extends Readout implements ImageUpdatable
 	{
 		if(this.on == on) return;
 		this.on = on;
-		offScreen.setVisible(!on);
-		if(!on && image != null)
+		if(!on) latestImage.set(null);
+		requestRedraw();
+	}
+	
+	/**
+	 * Displays the most recent image, or a blank screen if the ImageReadout has been
+	 * cleared or turned off.
+	 */
+	@Override
+	protected void redraw()
+	{
+		GImage next = on ? latestImage.get() : null;
+		if(next != image)
 		{
-			remove(image);
-			image = null;
+			if(image != null) remove(image);
+			image = next;
+			if(image != null)
+			{
+				image.setSize(onScreen.getWidth(), onScreen.getHeight());
+				add(image, onScreen.getX(), onScreen.getY());
+			}
 		}
+		offScreen.setVisible(!on || image != null);
 	}
 }
@@ -9,12 +9,12 @@ package dashboard.readout;
  * @author Mark Sabini
  *
  */
-public abstract class LevelReadout extends Readout implements Incrementable, NumberUpdatable, LevelUpdatable
+public abstract class LevelReadout extends Readout implements Incrementable, NumberBatchUpdatable, LevelUpdatable
 {
 	/**
 	 * The current level of the LevelReadout
 	 */
-	protected int level;
+	protected volatile int level;
 	
 	/**
 	 * The total number of levels into which the LevelReadout is divided
@@ -137,10 +137,21 @@ public abstract class LevelReadout extends Readout implements Incrementable, Num
 		setLevel((int)Math.round((value - minValue) * numDivisions / range));
 	}
 	
+	/**
+	 * Updates the LevelReadout with a batch of values. Since only one level can be shown, only
+	 * the last value in the batch is used.
+	 */
+	@Override
+	public void update(double[] values, long[] timestamps, int count)
+	{
+		if(count > 0) update(values[count - 1]);
+	}
+	
 	/**
 	 * Sets the LevelReadout to the specified level.
 	 * If the level is too low or too high, the LevelReadout will be set
-	 * to the lowest or highest level, respectively.
+	 * to the lowest or highest level, respectively. The new level is reported by
+	 * {@link #getLevel() getLevel} immediately, and drawn on the event dispatch thread.
 	 */
 	@Override
 	public void setLevel(int level)
@@ -148,6 +159,15 @@ public abstract class LevelReadout extends Readout implements Incrementable, Num
 		if(level < 0) level = 0;
 		if(level > numDivisions) level = numDivisions;
 		this.level = level;
+		requestRedraw();
+	}
+	
+	/**
+	 * Draws the LevelReadout at its most recent level.
+	 */
+	@Override
+	protected void redraw()
+	{
 		redrawAtLevel(level);
 	}
 	
@@ -171,7 +191,8 @@ public abstract class LevelReadout extends Readout implements Incrementable, Num
 	
 	/**
 	 * Draws the LevelReadout at the specified level, which is guaranteed to be
-	 * at least 0 and at most the number of divisions.
+	 * at least 0 and at most the number of divisions. This is always called on the
+	 * event dispatch thread.
 	 * 
 	 * @param level the level at which to set the LevelReadout
 	 */
@@ -1,11 +1,22 @@
 package dashboard.readout;
 
 import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.awt.image.DataBufferInt;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.HashMap;
+import java.util.List;
 import java.util.Map;
+import java.util.concurrent.atomic.AtomicReference;
 
-import dashboard.util.GPointMath;
+import dashboard.util.CoordinateArrays;
+import dashboard.util.SpatialHash;
+import dashboard.util.Vector2D;
 import acm.graphics.GCompound;
+import acm.graphics.GImage;
 import acm.graphics.GLine;
 import acm.graphics.GOval;
 import acm.graphics.GPoint;
@@ -15,6 +26,15 @@ import acm.graphics.GRect;
 /**
  * Implements a Readout that represents a minimap with pins to mark various locations. The minimap scale
  * can be varied during runtime using the method {@link #setViewRadius(double) setViewRadius}.
+ * <p>
+ * The positions of the pins are kept in a {@link SpatialHash SpatialHash} whose cells are about as large
+ * as the view radius, so each redraw only visits the pins near the current position, however many pins
+ * have been added. Pins are stored in primitive arrays, and markers are only created for the pins on the
+ * face, so large catalogs can be loaded with {@link #addPins(double[], double[], int[], Color[], int) addPins}.
+ * With {@link #setClustering(boolean) clustering} enabled, pins that would be drawn close together are
+ * merged into cluster markers, which keeps the number of markers bounded at large view radii. The clusters
+ * are kept up to date as pins are added, moved, and removed, so a redraw only visits the clusters in view. With
+ * {@link #setRasterized(boolean) rasterization} enabled, the pins are instead stamped into a single pixel buffer.
  * 
  * @author Mark Sabini
  *
@@ -32,29 +52,196 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 	private GOval face;
 	
 	/**
-	 * Maps keys to their respective pins
+	 * The arrow around the face of the MinimapReadout that marks the direction of the bearing
 	 */
-	private Map<String, Pin> pins;
+	private GArc arrow;
+	
+	/**
+	 * Maps keys to the ids of their respective pins
+	 */
+	private Map<String, Integer> pins;
+	
+	/**
+	 * The positions of the pins, indexed by pin id
+	 */
+	private SpatialHash pinIndex;
+	
+	/**
+	 * The palette index of the color of each pin, indexed by pin id
+	 */
+	private int[] colorOf = new int[16];
+	
+	/**
+	 * The marker currently drawn for each pin, or null if the pin is not shown, indexed by pin id
+	 */
+	private GOval[] markerOf = new GOval[16];
+	
+	/**
+	 * The redraw that last placed each pin, indexed by pin id
+	 */
+	private int[] drawnAt = new int[16];
+	
+	/**
+	 * Ids of removed pins, which are reused before new ids are handed out
+	 */
+	private final ArrayDeque<Integer> freeIds = new ArrayDeque<Integer>();
+	
+	/**
+	 * The smallest pin id that has never been handed out
+	 */
+	private int nextId = 0;
+	
+	/**
+	 * The colors of the pins, shared by every pin of the same color
+	 */
+	private final List<Color> palette = new ArrayList<Color>();
+	
+	/**
+	 * Maps colors to their indices in the palette
+	 */
+	private final Map<Color, Integer> paletteIndex = new HashMap<Color, Integer>();
+	
+	/**
+	 * The ids of the pins found by the most recent query
+	 */
+	private int[] found = new int[16];
+	
+	/**
+	 * Scratch arrays holding the positions of the pins found by the most recent query, and where they are drawn relative to the center of the face
+	 */
+	private double[] foundXs = new double[16], foundYs = new double[16], screenXs = new double[16], screenYs = new double[16];
+	
+	/**
+	 * The ids of the pins whose markers are currently drawn on the face
+	 */
+	private int[] shown = new int[16];
+	
+	/**
+	 * The number of pins whose markers are currently drawn on the face
+	 */
+	private int shownCount = 0;
+	
+	/**
+	 * The ids of the pins found to be visible by the redraw in progress, which become the shown pins once it finishes
+	 */
+	private int[] nextShown = new int[16];
+	
+	/**
+	 * The number of redraws that have placed pins so far
+	 */
+	private int frame = 0;
+	
+	/**
+	 * Whether pins that would be drawn close together are merged into cluster markers
+	 */
+	private volatile boolean clustering = false;
+	
+	/**
+	 * The cluster of every pin, kept up to date as pins change while clustering is in use
+	 */
+	private final ClusterTable clusters = new ClusterTable(64);
+	
+	/**
+	 * The clusters found by the most recent cluster query
+	 */
+	private int[] foundClusters = new int[16];
+	
+	/**
+	 * The clusters whose markers are currently drawn on the face
+	 */
+	private int[] shownClusters = new int[16];
+	
+	/**
+	 * The number of clusters whose markers are currently drawn on the face
+	 */
+	private int shownClusterCount = 0;
+	
+	/**
+	 * The clusters whose markers are drawn by the redraw in progress, which become the shown clusters once it finishes
+	 */
+	private int[] nextShownClusters = new int[16];
+	
+	/**
+	 * The position, unit bearing, and scale for which the cluster markers were last placed, where a scale of 0 means they were not
+	 */
+	private double clusterViewX, clusterViewY, clusterViewUpX, clusterViewUpY, clusterViewScale = 0.0;
+	
+	/**
+	 * Cluster markers that are not drawn, kept so that they can be reused
+	 */
+	private final ArrayDeque<GOval> clusterPool = new ArrayDeque<GOval>();
+	
+	/**
+	 * The color of the cluster markers
+	 */
+	private Color clusterColor;
+	
+	/**
+	 * Markers that are not drawn, kept so that they can be reused for pins coming into view
+	 */
+	private final ArrayDeque<GOval> markerPool = new ArrayDeque<GOval>();
+	
+	/**
+	 * Markers of removed pins that are still drawn, waiting to be taken off the display by the next redraw
+	 */
+	private final List<GOval> staleMarkers = new ArrayList<GOval>();
+	
+	/**
+	 * The most recent position and bearing that have not been drawn yet, or null if there are none
+	 */
+	private final AtomicReference<GPoint[]> latestLocation = new AtomicReference<GPoint[]>();
 	
 	/**
 	 * The distance in real units that the radius of the face should represent
 	 */
-	private double viewRadius;
+	private volatile double viewRadius;
 	
 	/**
 	 * The cosmetic crosshair of the MinimapReadout
 	 */
 	private GCompound crosshair;
 	
+	/**
+	 * Whether the pins should be drawn into the raster layer instead of as markers
+	 */
+	private volatile boolean rasterized = false;
+	
+	/**
+	 * Whether the display currently uses the raster layer, which only changes during a redraw
+	 */
+	private boolean rasterActive = false;
+	
+	/**
+	 * The pixel buffer the pins are drawn into while rasterized, or null if it has not been needed yet
+	 */
+	private RasterLayer layer;
+	
+	/**
+	 * The pre-rendered base, arrow, face, and crosshair shown while rasterized, or null if it has not been needed yet
+	 */
+	private GImage background;
+	
 	/**
 	 * The diameter of the pins on the MinimapReadout
 	 */
 	private static final double PIN_DIAMETER = 10.0;
 	
 	/**
-	 * A small positive double to mitigate floating point errors in vector calculations
+	 * The cell size of the pin index while the view radius is zero
+	 */
+	private static final double MIN_CELL_SIZE = 1.0;
+	
+	/**
+	 * The width and height in pixels of the cells within which pins are clustered. The size of the cells
+	 * in real units is rounded to a power of two, so that the clusters only have to be rebuilt when zooming
+	 * crosses one, which keeps the cells between about 0.7 and 1.4 times this size on screen.
 	 */
-	private static final double EPSILON = 0.00001;
+	private static final double CLUSTER_SIZE = 2.0 * PIN_DIAMETER;
+	
+	/**
+	 * Scratch vectors reused by {@link #redrawPins(GPoint, GPoint, double) redrawPins}, so that drawing the pins does not allocate
+	 */
+	private final Vector2D up = new Vector2D(), disp = new Vector2D();
 	
 	/**
 	 * Builder for the MinimapReadout class.
@@ -69,6 +256,16 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 		 */
 		private double viewRadius = 50.0;
 		
+		/**
+		 * Whether the MinimapReadout clusters pins, set to false by default
+		 */
+		private boolean clustering = false;
+		
+		/**
+		 * Whether the MinimapReadout draws pins into a pixel buffer, set to false by default
+		 */
+		private boolean rasterized = false;
+		
 		/**
 		 * Creates a Builder specifying a MinimapReadout with the given dimensions.
 		 * 
@@ -95,6 +292,32 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 			return this;
 		}
 		
+		/**
+		 * Specifies whether the MinimapReadout merges pins that would be drawn
+		 * close together into cluster markers
+		 * 
+		 * @param clustering whether the MinimapReadout clusters pins
+		 * @return the current Builder
+		 */
+		public Builder withClustering(boolean clustering)
+		{
+			this.clustering = clustering;
+			return this;
+		}
+		
+		/**
+		 * Specifies whether the MinimapReadout draws its pins into a single
+		 * pixel buffer instead of as one marker each
+		 * 
+		 * @param rasterized whether the MinimapReadout rasterizes pins
+		 * @return the current Builder
+		 */
+		public Builder withRasterized(boolean rasterized)
+		{
+			this.rasterized = rasterized;
+			return this;
+		}
+		
 		/**
 		 * Creates a new MinimapReadout with the Builder's parameters.
 		 * 
@@ -103,7 +326,10 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 		@Override
 		public MinimapReadout build()
 		{
-			return new MinimapReadout(width, height, spacing, baseColor, color, accentColor, viewRadius);
+			MinimapReadout readout = new MinimapReadout(width, height, spacing, baseColor, color, accentColor, viewRadius);
+			readout.setClustering(clustering);
+			readout.setRasterized(rasterized);
+			return readout;
 		}
 	}
 	
@@ -115,7 +341,7 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 	 * @param spacing the spacing of the MinimapReadout
 	 * @param baseColor the base color of the MinimapReadout
 	 * @param color the color of the MinimapReadout's face
-	 * @param accentColor the color of the MinimapReadout's crosshair
+	 * @param accentColor the color of the MinimapReadout's crosshair and cluster markers
 	 * @param viewRadius the view radius of the MinimapReadout
 	 */
 	protected MinimapReadout(double width, double height, double spacing, Color baseColor, Color color, Color accentColor, double viewRadius)
@@ -130,7 +356,7 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 		face.setFilled(true);
 		face.setFillColor(color);
 		
-		GArc arrow = new GArc(faceDiameter + spacing, faceDiameter + spacing, 45.0, 90.0);
+		arrow = new GArc(faceDiameter + spacing, faceDiameter + spacing, 45.0, 90.0);
 		arrow.setFilled(true);
 		arrow.setFillColor(accentColor);
 		add(arrow, (width - faceDiameter - spacing) / 2.0, (height - faceDiameter - spacing) / 2.0);
@@ -148,7 +374,9 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 		crosshair.add(half, faceDiameter / 4.0, faceDiameter / 4.0);
 		add(crosshair, face.getX(), face.getY());
 		
-		pins = new HashMap<String, Pin>();
+		clusterColor = accentColor;
+		pins = new HashMap<String, Integer>();
+		pinIndex = new SpatialHash(cellSizeFor(viewRadius));
 		this.viewRadius = viewRadius;
 	}
 	
@@ -157,9 +385,17 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 	 */
 	private void clearDisplay()
 	{
-		for(String key : pins.keySet())
+		releaseStaleMarkers();
+		hideClusters();
+		for(int i = 0; i < shownCount; ++i)
+		{
+			if(markerOf[shown[i]] != null) hideMarker(shown[i]);
+		}
+		shownCount = 0;
+		if(rasterActive)
 		{
-			remove(pins.get(key).getMarker());
+			layer.clear();
+			layer.refresh();
 		}
 	}
 	
@@ -169,8 +405,23 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 	 */
 	public void clear()
 	{
-		clearDisplay();
-		pins.clear();
+		synchronized(pins)
+		{
+			for(int i = 0; i < shownCount; ++i)
+			{
+				retireMarker(shown[i]);
+			}
+			shownCount = 0;
+			pins.clear();
+			pinIndex.clear();
+			clusters.reset(clusters.getCellSize());
+			freeIds.clear();
+			nextId = 0;
+			palette.clear();
+			paletteIndex.clear();
+		}
+		latestLocation.set(new GPoint[] {null, null});
+		requestRedraw();
 	}
 	
 	/**
@@ -185,130 +436,1246 @@ public final class MinimapReadout extends Readout implements LocationUpdatable
 	 */
 	public void addPin(String key, GPoint position, Color color)
 	{
-		if(pins.containsKey(key)) return; // Don't want to overwrite
-		Pin pin = new Pin(position, color);
-		pins.put(key, pin);
+		synchronized(pins)
+		{
+			if(pins.containsKey(key)) return; // Don't want to overwrite
+			int id = freeIds.isEmpty() ? nextId++ : freeIds.pop();
+			ensurePinCapacity(id + 1);
+			colorOf[id] = colorIndex(color);
+			pins.put(key, id);
+			pinIndex.put(id, position.getX(), position.getY());
+			if(clusters.isBuilt()) clusters.add(id, position.getX(), position.getY());
+		}
+	}
+	
+	/**
+	 * Adds many pins at once, such as a catalog of charted objects. The pins have no keys, so they
+	 * cannot be moved or removed individually, but only take up a few primitive array entries each.
+	 * Markers are only created for the pins that are on the face, and are reused as pins come into
+	 * and go out of view, so memory use follows the number of visible pins rather than the size of the catalog.
+	 * 
+	 * @param xs the x-coordinates of the pins
+	 * @param ys the y-coordinates of the pins
+	 * @param colors the index in the specified palette of the color of each pin
+	 * @param palette the colors of the pins
+	 * @param count the number of pins to add
+	 * @throws IllegalArgumentException if a color index is outside the palette
+	 */
+	public void addPins(double[] xs, double[] ys, int[] colors, Color[] palette, int count)
+	{
+		for(int i = 0; i < count; ++i)
+		{
+			if(colors[i] < 0 || colors[i] >= palette.length) throw new IllegalArgumentException();
+		}
+		synchronized(pins)
+		{
+			int[] indices = new int[palette.length];
+			for(int i = 0; i < palette.length; ++i)
+			{
+				indices[i] = colorIndex(palette[i]);
+			}
+			int first = nextId;
+			nextId += count;
+			ensurePinCapacity(nextId);
+			for(int i = 0; i < count; ++i)
+			{
+				colorOf[first + i] = indices[colors[i]];
+				pinIndex.put(first + i, xs[i], ys[i]);
+				if(clusters.isBuilt()) clusters.add(first + i, xs[i], ys[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Moves the specified pin to the given position. The pin will be drawn at its new position the
+	 * next time the MinimapReadout is updated. If the specified pin could not be found, no action is taken.
+	 * 
+	 * @param key the key referring to the pin to be moved
+	 * @param x the new x-coordinate of the pin
+	 * @param y the new y-coordinate of the pin
+	 */
+	public void movePin(String key, double x, double y)
+	{
+		synchronized(pins)
+		{
+			Integer id = pins.get(key);
+			if(id != null) putPin(id, x, y);
+		}
+	}
+	
+	/**
+	 * Moves many pins at once, as if {@link #movePin(String, double, double) movePin} had been called
+	 * for the first count entries of the specified arrays. Pins that could not be found are skipped.
+	 * 
+	 * @param keys the keys referring to the pins to be moved
+	 * @param xs the new x-coordinates of the pins
+	 * @param ys the new y-coordinates of the pins
+	 * @param count the number of pins to move
+	 */
+	public void movePins(String[] keys, double[] xs, double[] ys, int count)
+	{
+		synchronized(pins)
+		{
+			for(int i = 0; i < count; ++i)
+			{
+				Integer id = pins.get(keys[i]);
+				if(id != null) putPin(id, xs[i], ys[i]);
+			}
+		}
+	}
+	
+	/**
+	 * Moves the pin with the specified id in the pin index, and in the cluster table if it is in use.
+	 * Must be called while holding the lock on the pins.
+	 * 
+	 * @param id the id of the pin
+	 * @param x the new x-coordinate of the pin
+	 * @param y the new y-coordinate of the pin
+	 */
+	private void putPin(int id, double x, double y)
+	{
+		if(clusters.isBuilt()) clusters.move(id, pinIndex.getX(id), pinIndex.getY(id), x, y);
+		pinIndex.put(id, x, y);
 	}
 	
 	/**
-	 * Removes the specified pin from both the display and
-	 * the MinimapReadout's internal map. If the specified pin could
-	 * not be found, no action is taken.
+	 * Removes the specified pin from the MinimapReadout's internal map.
+	 * The pin will disappear from the display the next time the MinimapReadout
+	 * is updated. If the specified pin could not be found, no action is taken.
 	 * 
 	 * @param key the key referring to the pin to be removed
 	 */
 	public void removePin(String key)
 	{
-		if(!pins.containsKey(key)) return;
-		remove(pins.get(key).getMarker());
-		pins.remove(key);
+		synchronized(pins)
+		{
+			Integer id = pins.remove(key);
+			if(id == null) return;
+			if(clusters.isBuilt()) clusters.remove(id, pinIndex.getX(id), pinIndex.getY(id));
+			pinIndex.remove(id);
+			retireMarker(id);
+			freeIds.push(id);
+		}
 	}
 	
 	/**
-	 * Updates the MinimapReadout and redraws the entire display relative to the specified
-	 * position and bearing. If a pin lies outside the boundaries of the face, it will not
-	 * be drawn.
+	 * Updates the MinimapReadout with the specified position and bearing. The display is
+	 * redrawn on the event dispatch thread, relative to the most recent position and bearing.
 	 */
 	@Override
 	public void update(GPoint position, GPoint bearing)
 	{
 		if(isFrozen()) return;
-		clearDisplay();
-		if(position == null || bearing == null) return;
-		for(String key : pins.keySet())
-		{
-			Pin pin = pins.get(key);
-			// Determine the distance to see if the pin should be drawn
-			GPoint disp = GPointMath.diff(pin.getPosition(), position);
-			double dist = GPointMath.norm(disp);
-			if(dist > viewRadius) continue; // Too far out to draw
-			double pixelDist = dist * ((face.getWidth() - PIN_DIAMETER) / 2.0) / viewRadius;
-			if((int)Math.round(pixelDist) == 0) // Edge case if points are in center
+		latestLocation.set(new GPoint[] {position, bearing});
+		requestRedraw();
+	}
+	
+	/**
+	 * Redraws the display relative to the most recent position and bearing.
+	 * If a pin lies outside the boundaries of the face, it will not be drawn.
+	 * Markers that stay visible are only moved, so the display changes in
+	 * proportion to the number of pins entering or leaving the view.
+	 */
+	@Override
+	protected void redraw()
+	{
+		GPoint[] location = latestLocation.getAndSet(null);
+		if(location == null) return;
+		GPoint position = location[0];
+		GPoint bearing = location[1];
+		synchronized(pins)
+		{
+			applyRasterMode();
+			if(position == null || bearing == null)
 			{
-				add(pin.getMarker(), face.getX() + (face.getWidth() - PIN_DIAMETER) / 2.0, face.getY() + (face.getHeight() - PIN_DIAMETER) / 2.0);
-				continue;
+				clearDisplay();
+				return;
 			}
-			// We find the angle as follows:
-			double angleCos = GPointMath.dot(bearing, disp) / (GPointMath.norm(bearing) * GPointMath.norm(disp));
-			double angle;
-			if(Math.abs(angleCos + 1.0) < EPSILON) angle = Math.toRadians(180.0); // Edge case
-			else
-			{	
-				double unsignedAngle = Math.acos(angleCos);
-				double sign = Math.signum(GPointMath.cross(bearing, disp));
-				angle = sign * unsignedAngle;
+			redrawPins(position, bearing, this.viewRadius);
+		}
+	}
+	
+	/**
+	 * Draws every pin that lies within the view radius of the specified position, and removes the
+	 * markers of the pins that no longer do. Without clustering, only the pins returned by a query of the
+	 * pin index and the pins that were shown before are visited. With clustering, only the clusters in view
+	 * and the clusters that were shown before are.
+	 * 
+	 * @param position the position at the center of the face
+	 * @param bearing the bearing that points to the top of the face
+	 * @param viewRadius the distance in real units that the radius of the face represents
+	 */
+	private void redrawPins(GPoint position, GPoint bearing, double viewRadius)
+	{
+		releaseStaleMarkers();
+		double centerX = face.getX() + (face.getWidth() - PIN_DIAMETER) / 2.0;
+		double centerY = face.getY() + (face.getHeight() - PIN_DIAMETER) / 2.0;
+		double pixelsPerUnit = viewRadius > 0.0 ? ((face.getWidth() - PIN_DIAMETER) / 2.0) / viewRadius : 0.0; // Only pins at the center are in view otherwise
+		up.set(bearing).normalize();
+		boolean clustered = clustering && pixelsPerUnit > 0.0;
+		if(clustered) buildClusters(pixelsPerUnit);
+		else if(clusters.isBuilt())
+		{
+			// Stop keeping the clusters up to date until clustering is used again
+			hideClusters();
+			clusters.reset(0.0);
+		}
+		if(rasterActive)
+		{
+			rasterizePins(clustered, position, viewRadius, centerX, centerY, pixelsPerUnit);
+			return;
+		}
+		int frame = ++this.frame;
+		int shownNow = 0;
+		if(clustered)
+		{
+			shownNow = placeClusters(position, viewRadius, centerX, centerY, pixelsPerUnit, frame);
+		}
+		else
+		{
+			int count = queryPins(position, viewRadius, pixelsPerUnit);
+			if(nextShown.length < count) nextShown = new int[Math.max(count, 2 * nextShown.length)];
+			for(int i = 0; i < count; ++i)
+			{
+				int id = found[i];
+				placeMarker(id, centerX + screenXs[i], centerY + screenYs[i]);
+				drawnAt[id] = frame;
+				nextShown[shownNow++] = id;
 			}
-			double newX = face.getX() + (face.getWidth() - PIN_DIAMETER) / 2.0 - pixelDist * Math.sin(angle);
-			double newY = face.getY() + (face.getHeight() - PIN_DIAMETER) / 2.0 - pixelDist * Math.cos(angle);
-			
-			add(pin.getMarker(), newX, newY);	
 		}
+		for(int i = 0; i < shownCount; ++i)
+		{
+			int id = shown[i];
+			if(markerOf[id] == null || drawnAt[id] == frame) continue; // Already retired, or still in view
+			hideMarker(id);
+		}
+		int[] previous = shown;
+		shown = nextShown;
+		shownCount = shownNow;
+		nextShown = previous;
 	}
 	
 	/**
-	 * Sets the MinimapReadout's view radius to the one specified by the user.
-	 * The new view radius must be a nonnegative double.
+	 * Finds the pins within the view radius of the specified position, and stores their positions and
+	 * where they are drawn relative to the center of the face in the query scratch arrays.
 	 * 
-	 * @param viewRadius the new view radius of the MinimapReadout
-	 * @throws IllegalArgumentException if the view radius is negative
+	 * @param position the position at the center of the face
+	 * @param viewRadius the distance in real units that the radius of the face represents
+	 * @param pixelsPerUnit the number of pixels per real unit
+	 * @return the number of pins found
 	 */
-	public void setViewRadius(double viewRadius)
+	private int queryPins(GPoint position, double viewRadius, double pixelsPerUnit)
 	{
-		if(viewRadius < 0.0) throw new IllegalArgumentException();
-		this.viewRadius = viewRadius;
+		int count = pinIndex.query(position.getX(), position.getY(), viewRadius, found);
+		if(count > found.length)
+		{
+			growFound(count);
+			count = pinIndex.query(position.getX(), position.getY(), viewRadius, found);
+		}
+		for(int i = 0; i < count; ++i)
+		{
+			foundXs[i] = pinIndex.getX(found[i]);
+			foundYs[i] = pinIndex.getY(found[i]);
+		}
+		// The bearing points to the top of the face, and its left to the left of the face
+		CoordinateArrays.project(foundXs, foundYs, 0, count, position.getX(), position.getY(), up.getX(), up.getY(), pixelsPerUnit, screenXs, screenYs);
+		return count;
 	}
 	
 	/**
-	 * A small helper class to bundle together the data associated with a pin
-	 * in the MinimapReadout.
+	 * Makes sure the cluster table is in use, with cells of the power of two in real units that is
+	 * closest to {@link #CLUSTER_SIZE CLUSTER_SIZE} pixels at the specified scale. If the cell size has to
+	 * change, the table is rebuilt from every pin; otherwise it is already up to date.
 	 * 
-	 * @author Mark Sabini
-	 *
+	 * @param pixelsPerUnit the number of pixels per real unit
 	 */
-	private class Pin
+	private void buildClusters(double pixelsPerUnit)
 	{
-		/**
-		 * The actual graphical pin to be drawn in the MinimapReadout
-		 */
-		private GOval marker;
-		
-		/**
-		 * The position of the pin
-		 */
-		private GPoint position;
-		
-		/**
-		 * Creates a pin with the specified position and color.
-		 * 
-		 * @param position the position of the pin
-		 * @param color the color of the pin
-		 */
-		public Pin(GPoint position, Color color)
+		double cellSize = Math.pow(2.0, Math.rint(Math.log(CLUSTER_SIZE / pixelsPerUnit) / Math.log(2.0)));
+		if(cellSize == clusters.getCellSize()) return;
+		hideClusters();
+		clusters.reset(cellSize);
+		for(int id = 0; id < nextId; ++id)
 		{
-			this.position = position;
-			marker = new GOval(PIN_DIAMETER, PIN_DIAMETER);
-			marker.setFilled(true);
-			marker.setFillColor(color);
+			if(pinIndex.contains(id)) clusters.add(id, pinIndex.getX(id), pinIndex.getY(id));
 		}
-		
-		/**
-		 * Returns the graphical marker associated with the pin
-		 * 
-		 * @return the graphical marker associated with the pin.
-		 */
-		public GOval getMarker()
+	}
+	
+	/**
+	 * Finds the clusters whose centroids lie within the view radius of the specified position, and
+	 * stores them in the cluster query scratch array.
+	 * 
+	 * @param position the position at the center of the face
+	 * @param viewRadius the distance in real units that the radius of the face represents
+	 * @return the number of clusters found
+	 */
+	private int queryClusters(GPoint position, double viewRadius)
+	{
+		int count = clusters.query(position.getX(), position.getY(), viewRadius, foundClusters);
+		if(count > foundClusters.length)
 		{
-			return marker;
+			foundClusters = new int[Math.max(count, 2 * foundClusters.length)];
+			count = clusters.query(position.getX(), position.getY(), viewRadius, foundClusters);
 		}
-		
-		/**
-		 * Returns the position of the pin
-		 * 
-		 * @return the position of the pin
+		return count;
+	}
+	
+	/**
+	 * Draws the clusters in view. A cluster holding a single pin draws that pin's own marker, while a
+	 * cluster holding several draws one cluster marker at their centroid, sized by how many pins it holds.
+	 * If the position, bearing, and scale are the same as in the previous clustered redraw, markers are
+	 * only placed again for the clusters whose pins changed since then.
+	 * 
+	 * @param position the position at the center of the face
+	 * @param viewRadius the distance in real units that the radius of the face represents
+	 * @param centerX the x-coordinate at which a pin at the center of the face is drawn
+	 * @param centerY the y-coordinate at which a pin at the center of the face is drawn
+	 * @param pixelsPerUnit the number of pixels per real unit
+	 * @param frame the number of the redraw in progress
+	 * @return the number of pins whose own markers were drawn
+	 */
+	private int placeClusters(GPoint position, double viewRadius, double centerX, double centerY, double pixelsPerUnit, int frame)
+	{
+		ClusterTable table = clusters;
+		boolean viewChanged = position.getX() != clusterViewX || position.getY() != clusterViewY || up.getX() != clusterViewUpX || up.getY() != clusterViewUpY || pixelsPerUnit != clusterViewScale;
+		clusterViewX = position.getX();
+		clusterViewY = position.getY();
+		clusterViewUpX = up.getX();
+		clusterViewUpY = up.getY();
+		clusterViewScale = pixelsPerUnit;
+		int count = queryClusters(position, viewRadius);
+		if(nextShown.length < count) nextShown = new int[Math.max(count, 2 * nextShown.length)];
+		if(nextShownClusters.length < count) nextShownClusters = new int[Math.max(count, 2 * nextShownClusters.length)];
+		int shownNow = 0, clustersNow = 0;
+		for(int i = 0; i < count; ++i)
+		{
+			int cluster = foundClusters[i];
+			boolean stale = viewChanged || table.dirty[cluster];
+			table.dirty[cluster] = false;
+			int members = table.counts[cluster];
+			if(members == 1)
+			{
+				int id = table.memberXors[cluster];
+				if(stale || markerOf[id] == null)
+				{
+					projectPoint(pinIndex.getX(id), pinIndex.getY(id), position, pixelsPerUnit);
+					placeMarker(id, centerX + disp.getX(), centerY + disp.getY());
+				}
+				drawnAt[id] = frame;
+				nextShown[shownNow++] = id;
+				continue;
+			}
+			GOval marker = table.markers[cluster];
+			if(marker == null)
+			{
+				marker = clusterPool.poll();
+				if(marker == null)
+				{
+					marker = new GOval(PIN_DIAMETER, PIN_DIAMETER);
+					marker.setFilled(true);
+					marker.setFillColor(clusterColor);
+				}
+				add(marker);
+				table.markers[cluster] = marker;
+				stale = true;
+			}
+			table.drawnAt[cluster] = frame;
+			nextShownClusters[clustersNow++] = cluster;
+			if(!stale) continue;
+			double diameter = clusterDiameter(members);
+			projectPoint(table.sumXs[cluster] / members, table.sumYs[cluster] / members, position, pixelsPerUnit);
+			double x = centerX + disp.getX() + (PIN_DIAMETER - diameter) / 2.0;
+			double y = centerY + disp.getY() + (PIN_DIAMETER - diameter) / 2.0;
+			if(marker.getWidth() != diameter) marker.setSize(diameter, diameter);
+			if(marker.getX() != x || marker.getY() != y) marker.setLocation(x, y);
+		}
+		for(int i = 0; i < shownClusterCount; ++i)
+		{
+			int cluster = shownClusters[i];
+			if(table.markers[cluster] == null || table.drawnAt[cluster] == frame) continue; // Already hidden, or still in view
+			hideClusterMarker(cluster);
+		}
+		int[] previous = shownClusters;
+		shownClusters = nextShownClusters;
+		shownClusterCount = clustersNow;
+		nextShownClusters = previous;
+		return shownNow;
+	}
+	
+	/**
+	 * Returns the diameter of a cluster marker for the specified number of pins. It grows with the
+	 * number of pins, up to the size of a cell.
+	 * 
+	 * @param members the number of pins in the cluster
+	 * @return the diameter of the cluster marker
+	 */
+	private static double clusterDiameter(int members)
+	{
+		return PIN_DIAMETER * Math.min(1.0 + Math.log10(members) / 2.0, CLUSTER_SIZE / PIN_DIAMETER);
+	}
+	
+	/**
+	 * Stores in the scratch vector disp where the specified position is drawn, relative to where a pin
+	 * at the center of the face is drawn.
+	 * 
+	 * @param x the x-coordinate of the position to draw
+	 * @param y the y-coordinate of the position to draw
+	 * @param position the position at the center of the face
+	 * @param pixelsPerUnit the number of pixels per real unit
+	 */
+	private void projectPoint(double x, double y, GPoint position, double pixelsPerUnit)
+	{
+		disp.set(x, y).sub(position);
+		disp.set(-pixelsPerUnit * up.cross(disp), -pixelsPerUnit * up.dot(disp));
+	}
+	
+	/**
+	 * Stamps every pin or cluster in view into the raster layer and repaints the layer. No markers are
+	 * placed on the display.
+	 * 
+	 * @param clustered whether the clusters in view are stamped instead of the pins
+	 * @param position the position at the center of the face
+	 * @param viewRadius the distance in real units that the radius of the face represents
+	 * @param centerX the x-coordinate at which a pin at the center of the face is drawn
+	 * @param centerY the y-coordinate at which a pin at the center of the face is drawn
+	 * @param pixelsPerUnit the number of pixels per real unit
+	 */
+	private void rasterizePins(boolean clustered, GPoint position, double viewRadius, double centerX, double centerY, double pixelsPerUnit)
+	{
+		layer.clear();
+		if(clustered)
+		{
+			ClusterTable table = clusters;
+			int count = queryClusters(position, viewRadius);
+			for(int i = 0; i < count; ++i)
+			{
+				int cluster = foundClusters[i];
+				int members = table.counts[cluster];
+				if(members == 1)
+				{
+					int id = table.memberXors[cluster];
+					projectPoint(pinIndex.getX(id), pinIndex.getY(id), position, pixelsPerUnit);
+					layer.stampMarker(centerX + disp.getX(), centerY + disp.getY(), PIN_DIAMETER, palette.get(colorOf[id]).getRGB());
+					continue;
+				}
+				double diameter = clusterDiameter(members);
+				projectPoint(table.sumXs[cluster] / members, table.sumYs[cluster] / members, position, pixelsPerUnit);
+				double offset = (PIN_DIAMETER - diameter) / 2.0;
+				layer.stampMarker(centerX + disp.getX() + offset, centerY + disp.getY() + offset, diameter, clusterColor.getRGB());
+			}
+		}
+		else
+		{
+			int count = queryPins(position, viewRadius, pixelsPerUnit);
+			for(int i = 0; i < count; ++i)
+			{
+				layer.stampMarker(centerX + screenXs[i], centerY + screenYs[i], PIN_DIAMETER, palette.get(colorOf[found[i]]).getRGB());
+			}
+		}
+		layer.refresh();
+	}
+	
+	/**
+	 * Switches the display between markers and the raster layer if {@link #setRasterized(boolean) setRasterized}
+	 * has changed the mode since the last redraw. The raster layer and the background are created the first
+	 * time they are needed. While the raster layer is in use, the base, arrow, face, and crosshair are hidden,
+	 * since the background already shows them.
+	 */
+	private void applyRasterMode()
+	{
+		boolean rasterized = this.rasterized;
+		if(rasterized == rasterActive) return;
+		clearDisplay();
+		if(layer == null)
+		{
+			BufferedImage image = new BufferedImage((int)Math.ceil(base.getWidth()), (int)Math.ceil(base.getHeight()), BufferedImage.TYPE_INT_ARGB);
+			Graphics2D g = image.createGraphics();
+			base.paint(g);
+			arrow.paint(g);
+			face.paint(g);
+			crosshair.paint(g);
+			g.dispose();
+			background = new GImage(image);
+			add(background, base.getX(), base.getY());
+			layer = new RasterLayer((int)Math.ceil(face.getWidth()), (int)Math.ceil(face.getHeight()));
+			add(layer, face.getX(), face.getY());
+		}
+		base.setVisible(!rasterized);
+		arrow.setVisible(!rasterized);
+		face.setVisible(!rasterized);
+		crosshair.setVisible(!rasterized);
+		background.setVisible(rasterized);
+		layer.setVisible(rasterized);
+		rasterActive = rasterized;
+	}
+	
+	/**
+	 * Sets whether the pins are stamped into a single reusable pixel buffer instead of being drawn
+	 * as one marker each. In this mode the base, arrow, face, and crosshair are also drawn from a
+	 * cached background image, so the whole MinimapReadout takes two images to draw however many
+	 * pins are in view. The change takes effect the next time the MinimapReadout is updated.
+	 * 
+	 * @param rasterized whether the pins should be drawn into a pixel buffer
+	 */
+	public void setRasterized(boolean rasterized)
+	{
+		this.rasterized = rasterized;
+	}
+	
+	/**
+	 * Returns whether the pins are drawn into a single pixel buffer.
+	 * 
+	 * @return whether the pins are rasterized
+	 */
+	public boolean isRasterized()
+	{
+		return rasterized;
+	}
+	
+	/**
+	 * Removes every cluster marker from the display and returns them to the pool. The cluster markers
+	 * are placed again by the next clustered redraw.
+	 */
+	private void hideClusters()
+	{
+		for(int i = 0; i < shownClusterCount; ++i)
+		{
+			if(clusters.markers[shownClusters[i]] != null) hideClusterMarker(shownClusters[i]);
+		}
+		shownClusterCount = 0;
+		clusterViewScale = 0.0;
+	}
+	
+	/**
+	 * Removes the marker of the specified cluster from the display and returns it to the pool.
+	 * 
+	 * @param cluster the index of the cluster whose marker should be hidden
+	 */
+	private void hideClusterMarker(int cluster)
+	{
+		GOval marker = clusters.markers[cluster];
+		clusters.markers[cluster] = null;
+		remove(marker);
+		clusterPool.push(marker);
+	}
+	
+	/**
+	 * Sets whether pins that would be drawn within a few pixels of each other are merged into a
+	 * single cluster marker. Clustering keeps the number of markers bounded by the size of the face
+	 * rather than the number of pins, which matters when the view radius is large.
+	 * 
+	 * @param clustering whether pins should be clustered
+	 */
+	public void setClustering(boolean clustering)
+	{
+		this.clustering = clustering;
+	}
+	
+	/**
+	 * Returns whether pins that would be drawn close together are merged into cluster markers.
+	 * 
+	 * @return whether pins are clustered
+	 */
+	public boolean isClustering()
+	{
+		return clustering;
+	}
+	
+	/**
+	 * Moves the marker of the specified pin to the given location on the display,
+	 * taking a marker from the pool and adding it to the display if the pin is not already shown.
+	 * 
+	 * @param id the id of the pin whose marker should be placed
+	 * @param x the x-coordinate of the marker
+	 * @param y the y-coordinate of the marker
+	 */
+	private void placeMarker(int id, double x, double y)
+	{
+		GOval marker = markerOf[id];
+		if(marker == null)
+		{
+			marker = markerPool.poll();
+			if(marker == null)
+			{
+				marker = new GOval(PIN_DIAMETER, PIN_DIAMETER);
+				marker.setFilled(true);
+			}
+			marker.setFillColor(palette.get(colorOf[id]));
+			markerOf[id] = marker;
+			add(marker, x, y);
+		}
+		else if(marker.getX() != x || marker.getY() != y)
+		{
+			marker.setLocation(x, y);
+		}
+	}
+	
+	/**
+	 * Removes the marker of the specified pin from the display and returns it to the pool.
+	 * 
+	 * @param id the id of a shown pin
+	 */
+	private void hideMarker(int id)
+	{
+		GOval marker = markerOf[id];
+		markerOf[id] = null;
+		remove(marker);
+		markerPool.push(marker);
+	}
+	
+	/**
+	 * Detaches the marker of the specified pin, if it has one, so that the id can be reused right away.
+	 * The marker stays on the display until the next redraw, since only redraws change the display.
+	 * 
+	 * @param id the id of the pin
+	 */
+	private void retireMarker(int id)
+	{
+		if(markerOf[id] == null) return;
+		staleMarkers.add(markerOf[id]);
+		markerOf[id] = null;
+	}
+	
+	/**
+	 * Removes the markers of removed pins from the display and returns them to the pool.
+	 */
+	private void releaseStaleMarkers()
+	{
+		for(GOval marker : staleMarkers)
+		{
+			remove(marker);
+			markerPool.push(marker);
+		}
+		staleMarkers.clear();
+	}
+	
+	/**
+	 * Returns the index of the specified color in the palette, adding it if needed.
+	 * 
+	 * @param color the color
+	 * @return the index of the color in the palette
+	 */
+	private int colorIndex(Color color)
+	{
+		Integer index = paletteIndex.get(color);
+		if(index == null)
+		{
+			index = palette.size();
+			palette.add(color);
+			paletteIndex.put(color, index);
+		}
+		return index;
+	}
+	
+	/**
+	 * Grows the arrays indexed by pin id so that they can hold at least the specified number of ids.
+	 * 
+	 * @param capacity the number of ids needed
+	 */
+	private void ensurePinCapacity(int capacity)
+	{
+		if(capacity <= colorOf.length) return;
+		int length = Math.max(capacity, 2 * colorOf.length);
+		colorOf = Arrays.copyOf(colorOf, length);
+		markerOf = Arrays.copyOf(markerOf, length);
+		drawnAt = Arrays.copyOf(drawnAt, length);
+		clusters.ensurePinCapacity(length);
+	}
+	
+	/**
+	 * Grows the query scratch arrays so that they can hold at least the specified number of pins.
+	 * 
+	 * @param capacity the number of pins needed
+	 */
+	private void growFound(int capacity)
+	{
+		int length = Math.max(capacity, 2 * found.length);
+		found = new int[length];
+		foundXs = new double[length];
+		foundYs = new double[length];
+		screenXs = new double[length];
+		screenYs = new double[length];
+	}
+	
+	/**
+	 * Sets the MinimapReadout's view radius to the one specified by the user.
+	 * The new view radius must be a nonnegative double. The pin index is only rebuilt when the view
+	 * radius moves far from its cell size, so that zooming gradually does not rebuild it on every call.
+	 * 
+	 * @param viewRadius the new view radius of the MinimapReadout
+	 * @throws IllegalArgumentException if the view radius is negative
+	 */
+	public void setViewRadius(double viewRadius)
+	{
+		if(viewRadius < 0.0) throw new IllegalArgumentException();
+		this.viewRadius = viewRadius;
+		synchronized(pins)
+		{
+			double cellSize = cellSizeFor(viewRadius);
+			double oldCellSize = pinIndex.getCellSize();
+			if(cellSize < oldCellSize / 2.0 || cellSize > oldCellSize * 2.0) reindexPins(cellSize);
+		}
+	}
+	
+	/**
+	 * Returns the cell size of the pin index that suits the specified view radius.
+	 * 
+	 * @param viewRadius the view radius of the MinimapReadout
+	 * @return the cell size of the pin index
+	 */
+	private static double cellSizeFor(double viewRadius)
+	{
+		return Math.max(viewRadius, MIN_CELL_SIZE);
+	}
+	
+	/**
+	 * Rebuilds the pin index with cells of the specified size.
+	 * 
+	 * @param cellSize the new cell size of the pin index
+	 */
+	private void reindexPins(double cellSize)
+	{
+		SpatialHash reindexed = new SpatialHash(cellSize);
+		for(int id = 0; id < nextId; ++id)
+		{
+			if(pinIndex.contains(id)) reindexed.put(id, pinIndex.getX(id), pinIndex.getY(id));
+		}
+		pinIndex = reindexed;
+	}
+	
+	/**
+	 * Keeps every pin in a cluster by the square cell of a grid in real units that holds it. The
+	 * membership is updated as pins are added, moved, and removed, so a redraw only has to look up the
+	 * clusters in view instead of grouping the pins again. Each cluster counts its pins, sums their
+	 * positions, and remembers the cluster marker drawn for it and whether it changed since it was drawn.
+	 * <p>
+	 * Clusters live in parallel arrays indexed by cluster, and an open-addressing table maps cell keys
+	 * to clusters. A cluster that loses its last pin is removed from the table and its index is reused,
+	 * but its marker stays until the next redraw takes it off the display.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class ClusterTable
+	{
+		/**
+		 * The width and height of the cells in real units, or 0 if the table is not in use
+		 */
+		private double cellSize = 0.0;
+		
+		/**
+		 * Maps cell keys to their clusters, storing each cluster index plus one so that 0 marks an empty slot
+		 */
+		private int[] slots;
+		
+		/**
+		 * The number of clusters in the table
+		 */
+		private int live = 0;
+		
+		/**
+		 * The key of the cell of each cluster
+		 */
+		private long[] keys;
+		
+		/**
+		 * The number of pins in each cluster
+		 */
+		private int[] counts;
+		
+		/**
+		 * The sums of the positions of the pins in each cluster
+		 */
+		private double[] sumXs, sumYs;
+		
+		/**
+		 * The exclusive or of the ids of the pins in each cluster, which is the id of the only pin of a cluster with one pin
+		 */
+		private int[] memberXors;
+		
+		/**
+		 * The cluster marker drawn for each cluster, or null if there is none
+		 */
+		private GOval[] markers;
+		
+		/**
+		 * Whether each cluster has changed since its marker was last placed
+		 */
+		private boolean[] dirty;
+		
+		/**
+		 * The redraw that last placed the marker of each cluster
+		 */
+		private int[] drawnAt;
+		
+		/**
+		 * The number of cluster indices handed out so far
+		 */
+		private int size = 0;
+		
+		/**
+		 * Indices of clusters that lost their last pin, which are reused before new indices are handed out
+		 */
+		private int[] freeClusters = new int[16];
+		
+		/**
+		 * The number of reusable cluster indices
+		 */
+		private int freeCount = 0;
+		
+		/**
+		 * The cluster of each pin, or -1 if the pin is in none, indexed by pin id
+		 */
+		private int[] clusterOf = new int[16];
+		
+		/**
+		 * Creates an empty ClusterTable that is not in use.
+		 * 
+		 * @param capacity the initial number of clusters, which must be a power of two
+		 */
+		public ClusterTable(int capacity)
+		{
+			slots = new int[2 * capacity];
+			keys = new long[capacity];
+			counts = new int[capacity];
+			sumXs = new double[capacity];
+			sumYs = new double[capacity];
+			memberXors = new int[capacity];
+			markers = new GOval[capacity];
+			dirty = new boolean[capacity];
+			drawnAt = new int[capacity];
+			Arrays.fill(clusterOf, -1);
+		}
+		
+		/**
+		 * Returns whether the table is in use, so that it has to be kept up to date as pins change.
+		 * 
+		 * @return whether the table is in use
+		 */
+		public boolean isBuilt()
+		{
+			return cellSize > 0.0;
+		}
+		
+		/**
+		 * Returns the width and height of the cells in real units.
+		 * 
+		 * @return the cell size, or 0 if the table is not in use
+		 */
+		public double getCellSize()
+		{
+			return cellSize;
+		}
+		
+		/**
+		 * Empties the table and sets the size of its cells. The cluster markers are kept, so that the
+		 * markers still on the display can be taken off it.
+		 * 
+		 * @param cellSize the new cell size in real units, or 0 to stop using the table
+		 */
+		public void reset(double cellSize)
+		{
+			this.cellSize = cellSize;
+			Arrays.fill(slots, 0);
+			Arrays.fill(clusterOf, -1);
+			live = 0;
+			size = 0;
+			freeCount = 0;
+		}
+		
+		/**
+		 * Grows the array indexed by pin id so that it can hold at least the specified number of ids.
+		 * 
+		 * @param capacity the number of ids needed
+		 */
+		public void ensurePinCapacity(int capacity)
+		{
+			if(capacity <= clusterOf.length) return;
+			int length = clusterOf.length;
+			clusterOf = Arrays.copyOf(clusterOf, capacity);
+			Arrays.fill(clusterOf, length, capacity, -1);
+		}
+		
+		/**
+		 * Adds a pin to the cluster of the cell holding the specified position, creating the cluster if needed.
+		 * 
+		 * @param id the id of the pin
+		 * @param x the x-coordinate of the pin
+		 * @param y the y-coordinate of the pin
+		 */
+		public void add(int id, double x, double y)
+		{
+			long key = keyFor(x, y);
+			int cluster = find(key);
+			if(cluster < 0) cluster = create(key);
+			clusterOf[id] = cluster;
+			++counts[cluster];
+			sumXs[cluster] += x;
+			sumYs[cluster] += y;
+			memberXors[cluster] ^= id;
+			dirty[cluster] = true;
+		}
+		
+		/**
+		 * Removes a pin from its cluster, and removes the cluster if it has no pins left.
+		 * 
+		 * @param id the id of the pin
+		 * @param x the x-coordinate of the pin
+		 * @param y the y-coordinate of the pin
+		 */
+		public void remove(int id, double x, double y)
+		{
+			int cluster = clusterOf[id];
+			if(cluster < 0) return;
+			clusterOf[id] = -1;
+			memberXors[cluster] ^= id;
+			dirty[cluster] = true;
+			if(--counts[cluster] == 0)
+			{
+				release(cluster);
+				return;
+			}
+			sumXs[cluster] -= x;
+			sumYs[cluster] -= y;
+		}
+		
+		/**
+		 * Moves a pin, updating the centroid of its cluster if it stays in the same cell, or moving it to
+		 * the cluster of its new cell otherwise.
+		 * 
+		 * @param id the id of the pin
+		 * @param oldX the x-coordinate the pin is moved from
+		 * @param oldY the y-coordinate the pin is moved from
+		 * @param x the x-coordinate the pin is moved to
+		 * @param y the y-coordinate the pin is moved to
+		 */
+		public void move(int id, double oldX, double oldY, double x, double y)
+		{
+			if(x == oldX && y == oldY) return;
+			int cluster = clusterOf[id];
+			if(cluster >= 0 && keys[cluster] == keyFor(x, y))
+			{
+				sumXs[cluster] += x - oldX;
+				sumYs[cluster] += y - oldY;
+				dirty[cluster] = true;
+				return;
+			}
+			remove(id, oldX, oldY);
+			add(id, x, y);
+		}
+		
+		/**
+		 * Stores the indices of the clusters whose centroids lie within the specified distance of a
+		 * position. Either the cells covering the distance are looked up, or every cluster is visited,
+		 * whichever is fewer. If there are more clusters than fit in the array, only the count is exact.
+		 * 
+		 * @param px the x-coordinate of the position
+		 * @param py the y-coordinate of the position
+		 * @param radius the largest distance from the position at which a cluster is found
+		 * @param out the array in which to store the indices of the clusters
+		 * @return the number of clusters within the distance
+		 */
+		public int query(double px, double py, double radius, int[] out)
+		{
+			long minX = (long)Math.floor((px - radius) / cellSize), maxX = (long)Math.floor((px + radius) / cellSize);
+			long minY = (long)Math.floor((py - radius) / cellSize), maxY = (long)Math.floor((py + radius) / cellSize);
+			int count = 0;
+			if((maxX - minX + 1.0) * (maxY - minY + 1.0) > live)
+			{
+				for(int cluster = 0; cluster < size; ++cluster)
+				{
+					if(counts[cluster] > 0 && isWithin(cluster, px, py, radius)) count = store(out, count, cluster);
+				}
+				return count;
+			}
+			for(long cellX = minX; cellX <= maxX; ++cellX)
+			{
+				for(long cellY = minY; cellY <= maxY; ++cellY)
+				{
+					int cluster = find(key(cellX, cellY));
+					if(cluster >= 0 && isWithin(cluster, px, py, radius)) count = store(out, count, cluster);
+				}
+			}
+			return count;
+		}
+		
+		/**
+		 * Returns whether the centroid of the specified cluster lies within the specified distance of a position.
+		 * 
+		 * @param cluster the index of the cluster
+		 * @param px the x-coordinate of the position
+		 * @param py the y-coordinate of the position
+		 * @param radius the largest distance from the position
+		 * @return whether the centroid lies within the distance
+		 */
+		private boolean isWithin(int cluster, double px, double py, double radius)
+		{
+			double dx = sumXs[cluster] / counts[cluster] - px, dy = sumYs[cluster] / counts[cluster] - py;
+			return dx * dx + dy * dy <= radius * radius;
+		}
+		
+		/**
+		 * Stores a cluster index in the query results if there is room for it.
+		 * 
+		 * @param out the array of query results
+		 * @param count the number of clusters found so far
+		 * @param cluster the index of the cluster found
+		 * @return the number of clusters found, including this one
+		 */
+		private static int store(int[] out, int count, int cluster)
+		{
+			if(count < out.length) out[count] = cluster;
+			return count + 1;
+		}
+		
+		/**
+		 * Returns the key of the cell holding the specified position.
+		 * 
+		 * @param x the x-coordinate of the position
+		 * @param y the y-coordinate of the position
+		 * @return the key of the cell
+		 */
+		private long keyFor(double x, double y)
+		{
+			return key((long)Math.floor(x / cellSize), (long)Math.floor(y / cellSize));
+		}
+		
+		/**
+		 * Returns the key of the cell with the specified grid coordinates.
+		 * 
+		 * @param cellX the column of the cell
+		 * @param cellY the row of the cell
+		 * @return the key of the cell
+		 */
+		private static long key(long cellX, long cellY)
+		{
+			return (cellX << 32) ^ (cellY & 0xffffffffL);
+		}
+		
+		/**
+		 * Returns the home slot of the specified key.
+		 * 
+		 * @param key the key of a cell
+		 * @return the slot at which probing for the key starts
+		 */
+		private int home(long key)
+		{
+			return (int)((key * 0x9E3779B97F4A7C15L) >>> 32) & (slots.length - 1);
+		}
+		
+		/**
+		 * Returns the cluster of the cell with the specified key.
+		 * 
+		 * @param key the key of the cell
+		 * @return the index of the cluster, or -1 if the cell holds no pins
+		 */
+		private int find(long key)
+		{
+			int mask = slots.length - 1;
+			for(int slot = home(key); slots[slot] != 0; slot = (slot + 1) & mask)
+			{
+				if(keys[slots[slot] - 1] == key) return slots[slot] - 1;
+			}
+			return -1;
+		}
+		
+		/**
+		 * Creates an empty cluster for the cell with the specified key, which must not have one yet.
+		 * 
+		 * @param key the key of the cell
+		 * @return the index of the new cluster
+		 */
+		private int create(long key)
+		{
+			if(2 * (live + 1) > slots.length) growSlots();
+			int cluster;
+			if(freeCount > 0) cluster = freeClusters[--freeCount];
+			else
+			{
+				if(size == keys.length) growClusters();
+				cluster = size++;
+			}
+			keys[cluster] = key;
+			counts[cluster] = 0;
+			sumXs[cluster] = sumYs[cluster] = 0.0;
+			memberXors[cluster] = 0;
+			insert(cluster);
+			++live;
+			return cluster;
+		}
+		
+		/**
+		 * Inserts the specified cluster into the slot table under the key of its cell.
+		 * 
+		 * @param cluster the index of the cluster
+		 */
+		private void insert(int cluster)
+		{
+			int mask = slots.length - 1;
+			int slot = home(keys[cluster]);
+			while(slots[slot] != 0) slot = (slot + 1) & mask;
+			slots[slot] = cluster + 1;
+		}
+		
+		/**
+		 * Removes an empty cluster from the slot table, shifting back the entries probed past it, and
+		 * makes its index available for reuse.
+		 * 
+		 * @param cluster the index of the cluster
+		 */
+		private void release(int cluster)
+		{
+			int mask = slots.length - 1;
+			int hole = home(keys[cluster]);
+			while(slots[hole] != cluster + 1) hole = (hole + 1) & mask;
+			for(int slot = (hole + 1) & mask; slots[slot] != 0; slot = (slot + 1) & mask)
+			{
+				int home = home(keys[slots[slot] - 1]);
+				if(((slot - home) & mask) >= ((slot - hole) & mask))
+				{
+					slots[hole] = slots[slot];
+					hole = slot;
+				}
+			}
+			slots[hole] = 0;
+			sumXs[cluster] = sumYs[cluster] = 0.0;
+			if(freeCount == freeClusters.length) freeClusters = Arrays.copyOf(freeClusters, 2 * freeCount);
+			freeClusters[freeCount++] = cluster;
+			--live;
+		}
+		
+		/**
+		 * Doubles the number of slots and reinserts every cluster.
+		 */
+		private void growSlots()
+		{
+			int[] oldSlots = slots;
+			slots = new int[2 * oldSlots.length];
+			for(int slot : oldSlots)
+			{
+				if(slot != 0) insert(slot - 1);
+			}
+		}
+		
+		/**
+		 * Doubles the capacity of the arrays indexed by cluster.
+		 */
+		private void growClusters()
+		{
+			int capacity = 2 * keys.length;
+			keys = Arrays.copyOf(keys, capacity);
+			counts = Arrays.copyOf(counts, capacity);
+			sumXs = Arrays.copyOf(sumXs, capacity);
+			sumYs = Arrays.copyOf(sumYs, capacity);
+			memberXors = Arrays.copyOf(memberXors, capacity);
+			markers = Arrays.copyOf(markers, capacity);
+			dirty = Arrays.copyOf(dirty, capacity);
+			drawnAt = Arrays.copyOf(drawnAt, capacity);
+		}
+	}
+	
+	/**
+	 * A GImage backed by a pixel buffer that pins are stamped into directly. The buffer is reused
+	 * for every redraw, so drawing all the pins on the face costs a single image on the display.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static final class RasterLayer extends GImage
+	{
+		/**
+		 * The pixels of the buffer, as ARGB values in row-major order
+		 */
+		private final int[] pixels;
+		
+		/**
+		 * The width and height of the buffer in pixels
+		 */
+		private final int width, height;
+		
+		/**
+		 * The color of the outline of each pin, matching the outline of a pin marker
+		 */
+		private static final int OUTLINE = 0xff000000;
+		
+		/**
+		 * Creates a transparent RasterLayer with the specified size.
+		 * 
+		 * @param width the width of the RasterLayer in pixels
+		 * @param height the height of the RasterLayer in pixels
+		 */
+		public RasterLayer(int width, int height)
+		{
+			this(new BufferedImage(Math.max(width, 1), Math.max(height, 1), BufferedImage.TYPE_INT_ARGB));
+		}
+		
+		/**
+		 * Creates a RasterLayer that displays the specified buffer.
+		 * 
+		 * @param image the buffer to display, which must use integer ARGB pixels
+		 */
+		private RasterLayer(BufferedImage image)
+		{
+			super(image);
+			pixels = ((DataBufferInt)image.getRaster().getDataBuffer()).getData();
+			width = image.getWidth();
+			height = image.getHeight();
+		}
+		
+		/**
+		 * Makes every pixel of the buffer transparent.
+		 */
+		public void clear()
+		{
+			Arrays.fill(pixels, 0);
+		}
+		
+		/**
+		 * Draws a filled, outlined circle into the buffer, like a marker of the specified diameter whose
+		 * upper left corner is at the specified location in the coordinates of the RasterLayer's parent.
+		 * 
+		 * @param x the x-coordinate of the upper left corner of the marker
+		 * @param y the y-coordinate of the upper left corner of the marker
+		 * @param diameter the diameter of the marker
+		 * @param argb the fill color of the marker, as an ARGB value
+		 */
+		public void stampMarker(double x, double y, double diameter, int argb)
+		{
+			double radius = diameter / 2.0;
+			double centerX = x - getX() + radius, centerY = y - getY() + radius;
+			stampDisc(centerX, centerY, radius, OUTLINE);
+			stampDisc(centerX, centerY, radius - 1.0, argb);
+		}
+		
+		/**
+		 * Sets every pixel whose center lies within the specified circle, clipped to the buffer.
+		 * 
+		 * @param centerX the x-coordinate of the center of the circle in pixels
+		 * @param centerY the y-coordinate of the center of the circle in pixels
+		 * @param radius the radius of the circle in pixels
+		 * @param argb the color to set, as an ARGB value
+		 */
+		private void stampDisc(double centerX, double centerY, double radius, int argb)
+		{
+			if(radius <= 0.0) return;
+			int top = Math.max((int)Math.ceil(centerY - radius - 0.5), 0);
+			int bottom = Math.min((int)Math.floor(centerY + radius - 0.5), height - 1);
+			for(int row = top; row <= bottom; ++row)
+			{
+				double dy = row + 0.5 - centerY;
+				double half = Math.sqrt(Math.max(radius * radius - dy * dy, 0.0));
+				int left = Math.max((int)Math.ceil(centerX - half - 0.5), 0);
+				int right = Math.min((int)Math.floor(centerX + half - 0.5), width - 1);
+				if(left <= right) Arrays.fill(pixels, row * width + left, row * width + right + 1, argb);
+			}
+		}
+		
+		/**
+		 * Repaints the RasterLayer after its buffer has changed.
 		 */
-		public GPoint getPosition()
+		public void refresh()
 		{
-			return position;
+			repaint();
 		}
 	}
 }
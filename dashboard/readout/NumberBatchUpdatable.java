@@ -0,0 +1,23 @@
+package dashboard.readout;
+
+/**
+ * Defines the functionality of a class that can be updated with many doubles at once. A Generator that
+ * produces samples faster than it wakes up can hand all the samples from one wakeup to the class in a
+ * single call.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public interface NumberBatchUpdatable extends NumberUpdatable
+{
+	/**
+	 * Updates the class with the first count values of the specified array, in order. The arrays belong
+	 * to the caller and may be reused as soon as this method returns, so the implementing class must
+	 * copy anything it needs to keep.
+	 * 
+	 * @param values the raw values, interpreted by the implementing class
+	 * @param timestamps the time at which each value was sampled, as given by System.nanoTime()
+	 * @param count the number of values in the batch
+	 */
+	public void update(double[] values, long[] timestamps, int count);
+}
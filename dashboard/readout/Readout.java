@@ -1,12 +1,21 @@
 package dashboard.readout;
 import java.awt.Color;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import javax.swing.SwingUtilities;
 
 import acm.graphics.GCompound;
+import acm.graphics.GRectangle;
 
 /**
  * Provides the base functionality for a graphical widget that can display data. In order to
  * allow subclasses to be updated in different ways, subclasses of Readout usually implement
  * at least one of the interfaces ending in "Updatable".
+ * <p>
+ * Readouts may be updated from any thread, but their graphics are only modified on the event
+ * dispatch thread. An update stores the new value in the Readout and calls {@link #requestRedraw() requestRedraw},
+ * and the Readout later applies the most recent value in {@link #redraw() redraw}. Values that arrive faster
+ * than they can be drawn are therefore merged, and only the latest one is drawn.
  * 
  * @author Mark Sabini
  *
@@ -16,7 +25,29 @@ public abstract class Readout extends GCompound
 	/**
 	 * Whether the Readout is frozen, i.e. whether it should respond to updates
 	 */
-	private boolean frozen = false;
+	private volatile boolean frozen = false;
+	
+	/**
+	 * Whether the Readout has new values that have not been drawn yet
+	 */
+	private final AtomicBoolean pending = new AtomicBoolean();
+	
+	/**
+	 * The scheduler that decides when the Readout is flushed, or null to flush as soon as possible
+	 */
+	private volatile RedrawScheduler scheduler;
+	
+	/**
+	 * Draws the pending values on the event dispatch thread
+	 */
+	private final Runnable flusher = new Runnable()
+	{
+		@Override
+		public void run()
+		{
+			flush();
+		}
+	};
 	
 	/**
 	 * Builder for the Readout class, to be extended by all subclasses of Readout.
@@ -150,4 +181,74 @@ public abstract class Readout extends GCompound
 	{
 		return frozen;
 	}
+	
+	/**
+	 * Signals that the Readout has new values to draw. The first request after a redraw schedules
+	 * {@link #flush() flush} on the event dispatch thread, or hands the Readout to its {@link RedrawScheduler RedrawScheduler}
+	 * if it has one; further requests before then are merged into it.
+	 * This method may be called from any thread.
+	 */
+	protected final void requestRedraw()
+	{
+		if(!pending.compareAndSet(false, true)) return;
+		RedrawScheduler scheduler = this.scheduler;
+		if(scheduler != null) scheduler.schedule(this);
+		else SwingUtilities.invokeLater(flusher);
+	}
+	
+	/**
+	 * Sets the scheduler that decides when the Readout is flushed. If the scheduler is null, the
+	 * Readout flushes itself on the event dispatch thread as soon as possible after each request.
+	 * 
+	 * @param scheduler the scheduler that decides when the Readout is flushed
+	 */
+	public void setRedrawScheduler(RedrawScheduler scheduler)
+	{
+		this.scheduler = scheduler;
+		if(pending.get()) SwingUtilities.invokeLater(flusher);
+	}
+	
+	/**
+	 * Returns the scheduler that decides when the Readout is flushed.
+	 * 
+	 * @return the scheduler that decides when the Readout is flushed, or null if there is none
+	 */
+	public RedrawScheduler getRedrawScheduler()
+	{
+		return scheduler;
+	}
+	
+	/**
+	 * Draws the most recent values if a redraw has been requested since the last flush. This method
+	 * should only be called on the event dispatch thread.
+	 */
+	public final void flush()
+	{
+		if(pending.getAndSet(false)) redraw();
+	}
+	
+	/**
+	 * Returns the region of the Readout that {@link #redraw() redraw} may change, in the Readout's own
+	 * coordinates. A {@link RedrawScheduler RedrawScheduler} only repaints this region after flushing
+	 * the Readout, so it must cover everything that a redraw can change, both before and after the
+	 * change. By default, the region is the whole Readout.
+	 * 
+	 * @return the region of the Readout that a redraw may change
+	 */
+	public GRectangle getDirtyBounds()
+	{
+		GRectangle bounds = getBounds();
+		bounds.translate(-getX(), -getY());
+		return bounds;
+	}
+	
+	/**
+	 * Applies the most recent values stored in the Readout to its graphics. This is always called on the
+	 * event dispatch thread, after {@link #requestRedraw() requestRedraw} has been called at least once.
+	 * Subclasses that update their graphics lazily should override this method.
+	 */
+	protected void redraw()
+	{
+		// Do nothing
+	}
 }
@@ -0,0 +1,21 @@
+package dashboard.readout;
+
+/**
+ * Defines the functionality of a class that decides when Readouts apply their pending values. A
+ * Readout that has been given a RedrawScheduler hands itself to the scheduler instead of flushing
+ * itself on the event dispatch thread, which allows many Readouts to be drawn together in one frame.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public interface RedrawScheduler
+{
+	/**
+	 * Schedules the specified Readout to be flushed. The implementing class must eventually call
+	 * {@link Readout#flush() flush} on the Readout from the event dispatch thread. This method may
+	 * be called from any thread, and is called at most once between two flushes of the same Readout.
+	 * 
+	 * @param readout the Readout that has new values to draw
+	 */
+	public void schedule(Readout readout);
+}
@@ -0,0 +1,23 @@
+package dashboard.readout;
+
+/**
+ * Defines the functionality of a class that can be updated with many Strings at once. A Generator that
+ * produces lines faster than it wakes up can hand all the lines from one wakeup to the class in a
+ * single call.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public interface StringBatchUpdatable extends StringUpdatable
+{
+	/**
+	 * Updates the class with the first count Strings of the specified array, in order. The arrays belong
+	 * to the caller and may be reused as soon as this method returns, so the implementing class must
+	 * copy anything it needs to keep.
+	 * 
+	 * @param strs the strings with which to update the class
+	 * @param timestamps the time at which each String was produced, as given by System.nanoTime()
+	 * @param count the number of Strings in the batch
+	 */
+	public void update(String[] strs, long[] timestamps, int count);
+}
@@ -0,0 +1,259 @@
+package dashboard.util;
+
+/**
+ * Provides vector operations over many points at once, where the points are stored as two parallel
+ * arrays of x- and y-coordinates. Each method works on the points with indices from {@code from}
+ * (inclusive) to {@code to} (exclusive), so that a large array can be split between several threads.
+ * <p>
+ * The loops are kept simple, with no method calls and no data-dependent branches, so that the JIT
+ * compiler can unroll them and turn them into SIMD instructions where the processor supports them.
+ * None of the methods allocate any objects.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class CoordinateArrays
+{
+	/**
+	 * Translates the points by the specified offset, in place.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param dx the offset in the x direction
+	 * @param dy the offset in the y direction
+	 */
+	public static void translate(double[] xs, double[] ys, int from, int to, double dx, double dy)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			xs[i] += dx;
+			ys[i] += dy;
+		}
+	}
+	
+	/**
+	 * Rotates the points counterclockwise about the origin by the angle with the specified sine and
+	 * cosine, in place.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param sin the sine of the angle
+	 * @param cos the cosine of the angle
+	 */
+	public static void rotate(double[] xs, double[] ys, int from, int to, double sin, double cos)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			double x = xs[i], y = ys[i];
+			xs[i] = x * cos - y * sin;
+			ys[i] = x * sin + y * cos;
+		}
+	}
+	
+	/**
+	 * Rotates the points counterclockwise about the origin by the specified angle in radians, in place.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param angle the angle in radians by which to rotate the points
+	 */
+	public static void rotate(double[] xs, double[] ys, int from, int to, double angle)
+	{
+		rotate(xs, ys, from, to, Math.sin(angle), Math.cos(angle));
+	}
+	
+	/**
+	 * Stores each point plus a multiple of the matching vector in the destination arrays, which may be
+	 * the same as the source arrays. This is the position update of a physics step, where the vectors
+	 * are velocities and the factor is the length of the step.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param vxs the x-components of the vectors
+	 * @param vys the y-components of the vectors
+	 * @param factor the factor by which the vectors are scaled
+	 * @param outXs the array in which to store the x-coordinates of the results
+	 * @param outYs the array in which to store the y-coordinates of the results
+	 */
+	public static void addScaled(double[] xs, double[] ys, int from, int to, double[] vxs, double[] vys, double factor, double[] outXs, double[] outYs)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			outXs[i] = xs[i] + vxs[i] * factor;
+			outYs[i] = ys[i] + vys[i] * factor;
+		}
+	}
+	
+	/**
+	 * Stores the square of the distance from each point to the specified position.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the position
+	 * @param py the y-coordinate of the position
+	 * @param out the array in which to store the squared distances
+	 */
+	public static void distanceSq(double[] xs, double[] ys, int from, int to, double px, double py, double[] out)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			double dx = xs[i] - px, dy = ys[i] - py;
+			out[i] = dx * dx + dy * dy;
+		}
+	}
+	
+	/**
+	 * Stores the distance from each point to the specified position.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the position
+	 * @param py the y-coordinate of the position
+	 * @param out the array in which to store the distances
+	 */
+	public static void distance(double[] xs, double[] ys, int from, int to, double px, double py, double[] out)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			double dx = xs[i] - px, dy = ys[i] - py;
+			out[i] = Math.sqrt(dx * dx + dy * dy);
+		}
+	}
+	
+	/**
+	 * Stores the dot product of the specified bearing and the displacement from the specified position
+	 * to each point. If the bearing is a unit vector, this is how far ahead of the position each point lies.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the position
+	 * @param py the y-coordinate of the position
+	 * @param bx the x-component of the bearing
+	 * @param by the y-component of the bearing
+	 * @param out the array in which to store the dot products
+	 */
+	public static void dot(double[] xs, double[] ys, int from, int to, double px, double py, double bx, double by, double[] out)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			out[i] = bx * (xs[i] - px) + by * (ys[i] - py);
+		}
+	}
+	
+	/**
+	 * Stores the cross product of the specified bearing and the displacement from the specified position
+	 * to each point. If the bearing is a unit vector, this is how far to the left of the bearing each point lies.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the position
+	 * @param py the y-coordinate of the position
+	 * @param bx the x-component of the bearing
+	 * @param by the y-component of the bearing
+	 * @param out the array in which to store the cross products
+	 */
+	public static void cross(double[] xs, double[] ys, int from, int to, double px, double py, double bx, double by, double[] out)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			out[i] = bx * (ys[i] - py) - by * (xs[i] - px);
+		}
+	}
+	
+	/**
+	 * Transforms the points into the frame of a viewer at the specified position, facing along the
+	 * specified unit bearing, and scales them. In the results, the bearing points towards negative y,
+	 * and its left towards negative x, which is how a map centered on the viewer is drawn on screen.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the viewer
+	 * @param py the y-coordinate of the viewer
+	 * @param ux the x-component of the unit bearing of the viewer
+	 * @param uy the y-component of the unit bearing of the viewer
+	 * @param scale the factor by which the results are scaled
+	 * @param outXs the array in which to store the x-coordinates of the results
+	 * @param outYs the array in which to store the y-coordinates of the results
+	 */
+	public static void project(double[] xs, double[] ys, int from, int to, double px, double py, double ux, double uy, double scale, double[] outXs, double[] outYs)
+	{
+		for(int i = from; i < to; ++i)
+		{
+			double dx = xs[i] - px, dy = ys[i] - py;
+			outXs[i] = -scale * (ux * dy - uy * dx);
+			outYs[i] = -scale * (ux * dx + uy * dy);
+		}
+	}
+	
+	/**
+	 * Marks which points lie within the specified distance of a position, and counts them.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the position
+	 * @param py the y-coordinate of the position
+	 * @param radius the largest distance from the position at which a point is marked
+	 * @param mask the array in which to store whether each point lies within the distance
+	 * @return the number of points within the distance
+	 */
+	public static int withinRange(double[] xs, double[] ys, int from, int to, double px, double py, double radius, boolean[] mask)
+	{
+		double radiusSq = radius * radius;
+		int count = 0;
+		for(int i = from; i < to; ++i)
+		{
+			double dx = xs[i] - px, dy = ys[i] - py;
+			boolean within = dx * dx + dy * dy <= radiusSq;
+			mask[i] = within;
+			count += within ? 1 : 0;
+		}
+		return count;
+	}
+	
+	/**
+	 * Stores the indices of the points that lie within the specified distance of a position, in
+	 * increasing order.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param from the index of the first point
+	 * @param to the index after the last point
+	 * @param px the x-coordinate of the position
+	 * @param py the y-coordinate of the position
+	 * @param radius the largest distance from the position at which a point is selected
+	 * @param indices the array in which to store the indices, which must be able to hold every point in the range
+	 * @return the number of points within the distance
+	 */
+	public static int selectInRange(double[] xs, double[] ys, int from, int to, double px, double py, double radius, int[] indices)
+	{
+		double radiusSq = radius * radius;
+		int count = 0;
+		for(int i = from; i < to; ++i)
+		{
+			double dx = xs[i] - px, dy = ys[i] - py;
+			indices[count] = i; // Always written, but only kept if the point is in range
+			count += (dx * dx + dy * dy <= radiusSq) ? 1 : 0;
+		}
+		return count;
+	}
+}
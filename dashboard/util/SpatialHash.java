@@ -0,0 +1,396 @@
+package dashboard.util;
+
+import java.util.Arrays;
+
+/**
+ * Provides a uniform spatial hash of points, used to find the points near a given position without
+ * testing every point. The plane is divided into square cells, and each point is stored in the list
+ * of the cell that contains it. A query only visits the cells that overlap the query circle, so its
+ * cost depends on the number of points nearby rather than on the total number of points.
+ * <p>
+ * Points are identified by non-negative integer ids chosen by the caller, which should be small and
+ * dense since they are used as array indices. Moving a point within its cell is cheap, and moving it
+ * to another cell only relinks it, so the hash can be updated incrementally every step. Apart from
+ * occasional growth, neither updates nor queries allocate any objects.
+ * <p>
+ * SpatialHash is not thread-safe.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class SpatialHash
+{
+	/**
+	 * Marks the end of a cell's list, an empty cell, or a point that is not in the hash
+	 */
+	private static final int NONE = -1;
+	
+	/**
+	 * The width and height of each cell
+	 */
+	private final double cellSize;
+	
+	/**
+	 * The coordinates of each point
+	 */
+	private double[] xs, ys;
+	
+	/**
+	 * The key of the cell that contains each point
+	 */
+	private long[] cellOf;
+	
+	/**
+	 * The next and previous points in the list of each point's cell
+	 */
+	private int[] next, prev;
+	
+	/**
+	 * Whether each id is currently in the hash
+	 */
+	private boolean[] present;
+	
+	/**
+	 * The keys of the cells in the open-addressing table
+	 */
+	private long[] keys;
+	
+	/**
+	 * The first point in each cell of the table, or NONE if the cell is empty
+	 */
+	private int[] heads;
+	
+	/**
+	 * Whether each slot of the table holds a cell
+	 */
+	private boolean[] used;
+	
+	/**
+	 * The number of slots of the table that hold a cell, including empty cells
+	 */
+	private int cellCount = 0;
+	
+	/**
+	 * The number of points in the hash
+	 */
+	private int size = 0;
+	
+	/**
+	 * Creates an empty SpatialHash with the specified cell size. Queries are fastest when the cell size
+	 * is close to the typical query radius.
+	 * 
+	 * @param cellSize the width and height of each cell
+	 * @throws IllegalArgumentException if the cell size is not positive
+	 */
+	public SpatialHash(double cellSize)
+	{
+		if(!(cellSize > 0.0)) throw new IllegalArgumentException();
+		this.cellSize = cellSize;
+		xs = new double[16];
+		ys = new double[16];
+		cellOf = new long[16];
+		next = new int[16];
+		prev = new int[16];
+		present = new boolean[16];
+		keys = new long[64];
+		heads = new int[64];
+		used = new boolean[64];
+	}
+	
+	/**
+	 * Returns the width and height of each cell.
+	 * 
+	 * @return the cell size of the SpatialHash
+	 */
+	public double getCellSize()
+	{
+		return cellSize;
+	}
+	
+	/**
+	 * Returns the number of points in the SpatialHash.
+	 * 
+	 * @return the number of points in the SpatialHash
+	 */
+	public int size()
+	{
+		return size;
+	}
+	
+	/**
+	 * Returns whether the point with the specified id is in the SpatialHash.
+	 * 
+	 * @param id the id of the point
+	 * @return whether the point is in the SpatialHash
+	 */
+	public boolean contains(int id)
+	{
+		return id >= 0 && id < present.length && present[id];
+	}
+	
+	/**
+	 * Returns the x-coordinate of the point with the specified id.
+	 * 
+	 * @param id the id of a point in the SpatialHash
+	 * @return the x-coordinate of the point
+	 */
+	public double getX(int id)
+	{
+		return xs[id];
+	}
+	
+	/**
+	 * Returns the y-coordinate of the point with the specified id.
+	 * 
+	 * @param id the id of a point in the SpatialHash
+	 * @return the y-coordinate of the point
+	 */
+	public double getY(int id)
+	{
+		return ys[id];
+	}
+	
+	/**
+	 * Adds a point with the specified id, or moves it if it is already in the SpatialHash.
+	 * 
+	 * @param id the id of the point
+	 * @param x the x-coordinate of the point
+	 * @param y the y-coordinate of the point
+	 * @throws IllegalArgumentException if the id is negative
+	 */
+	public void put(int id, double x, double y)
+	{
+		if(id < 0) throw new IllegalArgumentException();
+		if(id >= present.length) growPoints(id + 1);
+		long cell = cellKey(cellIndex(x), cellIndex(y));
+		xs[id] = x;
+		ys[id] = y;
+		if(present[id])
+		{
+			if(cellOf[id] == cell) return; // Still in the same cell
+			unlink(id);
+		}
+		else
+		{
+			present[id] = true;
+			++size;
+		}
+		link(id, cell);
+	}
+	
+	/**
+	 * Removes the point with the specified id. If the point is not in the SpatialHash, no action is taken.
+	 * 
+	 * @param id the id of the point
+	 */
+	public void remove(int id)
+	{
+		if(!contains(id)) return;
+		unlink(id);
+		present[id] = false;
+		--size;
+	}
+	
+	/**
+	 * Removes every point from the SpatialHash.
+	 */
+	public void clear()
+	{
+		Arrays.fill(present, false);
+		Arrays.fill(used, false);
+		cellCount = 0;
+		size = 0;
+	}
+	
+	/**
+	 * Finds the points within the specified distance of a position. The ids of the points are stored
+	 * in the results array, in no particular order. If there are more points than fit in the array,
+	 * only the first ones found are stored, but all of them are counted.
+	 * 
+	 * @param x the x-coordinate of the position
+	 * @param y the y-coordinate of the position
+	 * @param radius the largest distance from the position at which a point is found
+	 * @param results the array in which to store the ids of the points found
+	 * @return the number of points within the distance, which may exceed the length of the results array
+	 */
+	public int query(double x, double y, double radius, int[] results)
+	{
+		if(size == 0 || radius < 0.0) return 0;
+		long minX = cellIndex(x - radius), maxX = cellIndex(x + radius);
+		long minY = cellIndex(y - radius), maxY = cellIndex(y + radius);
+		double radiusSq = radius * radius;
+		int found = 0;
+		if((double)(maxX - minX + 1) * (maxY - minY + 1) > size)
+		{
+			// The circle covers more cells than there are points, so checking every point is cheaper
+			for(int id = 0; id < present.length; ++id)
+			{
+				if(present[id] && isWithin(id, x, y, radiusSq))
+				{
+					if(found < results.length) results[found] = id;
+					++found;
+				}
+			}
+			return found;
+		}
+		for(long cx = minX; cx <= maxX; ++cx)
+		{
+			for(long cy = minY; cy <= maxY; ++cy)
+			{
+				int slot = findSlot(cellKey(cx, cy));
+				if(!used[slot]) continue;
+				for(int id = heads[slot]; id != NONE; id = next[id])
+				{
+					if(isWithin(id, x, y, radiusSq))
+					{
+						if(found < results.length) results[found] = id;
+						++found;
+					}
+				}
+			}
+		}
+		return found;
+	}
+	
+	/**
+	 * Returns whether the specified point is within a distance of a position.
+	 * 
+	 * @param id the id of the point
+	 * @param x the x-coordinate of the position
+	 * @param y the y-coordinate of the position
+	 * @param radiusSq the square of the distance
+	 * @return whether the point is within the distance
+	 */
+	private boolean isWithin(int id, double x, double y, double radiusSq)
+	{
+		double dx = xs[id] - x, dy = ys[id] - y;
+		return dx * dx + dy * dy <= radiusSq;
+	}
+	
+	/**
+	 * Returns the index of the column or row of cells that contains the specified coordinate.
+	 * 
+	 * @param coord the coordinate
+	 * @return the index of the column or row
+	 */
+	private long cellIndex(double coord)
+	{
+		return (long)Math.floor(coord / cellSize);
+	}
+	
+	/**
+	 * Combines the column and row of a cell into a single key.
+	 * 
+	 * @param cx the column of the cell
+	 * @param cy the row of the cell
+	 * @return the key of the cell
+	 */
+	private static long cellKey(long cx, long cy)
+	{
+		return (cx << 32) ^ (cy & 0xffffffffL);
+	}
+	
+	/**
+	 * Returns the slot of the table that holds the specified cell, or the empty slot where it would go.
+	 * 
+	 * @param key the key of the cell
+	 * @return the slot of the cell
+	 */
+	private int findSlot(long key)
+	{
+		int mask = keys.length - 1;
+		int slot = (int)((key * 0x9E3779B97F4A7C15L) >>> 40) & mask;
+		while(used[slot] && keys[slot] != key)
+		{
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+	
+	/**
+	 * Adds the specified point to the front of the list of the specified cell, creating the cell if needed.
+	 * 
+	 * @param id the id of the point
+	 * @param cell the key of the cell
+	 */
+	private void link(int id, long cell)
+	{
+		int slot = findSlot(cell);
+		if(!used[slot])
+		{
+			if(2 * (cellCount + 1) > keys.length)
+			{
+				rehash();
+				slot = findSlot(cell);
+			}
+			used[slot] = true;
+			keys[slot] = cell;
+			heads[slot] = NONE;
+			++cellCount;
+		}
+		cellOf[id] = cell;
+		prev[id] = NONE;
+		next[id] = heads[slot];
+		if(heads[slot] != NONE) prev[heads[slot]] = id;
+		heads[slot] = id;
+	}
+	
+	/**
+	 * Removes the specified point from the list of its cell. The cell itself is kept, even if it is now empty.
+	 * 
+	 * @param id the id of the point
+	 */
+	private void unlink(int id)
+	{
+		if(prev[id] != NONE) next[prev[id]] = next[id];
+		else heads[findSlot(cellOf[id])] = next[id];
+		if(next[id] != NONE) prev[next[id]] = prev[id];
+	}
+	
+	/**
+	 * Rebuilds the table, dropping empty cells and doubling its size if it would still be more than a
+	 * quarter full.
+	 */
+	private void rehash()
+	{
+		long[] oldKeys = keys;
+		int[] oldHeads = heads;
+		boolean[] oldUsed = used;
+		int occupied = 0;
+		for(int slot = 0; slot < oldKeys.length; ++slot)
+		{
+			if(oldUsed[slot] && oldHeads[slot] != NONE) ++occupied;
+		}
+		int length = oldKeys.length;
+		while(4 * (occupied + 1) > length) length *= 2;
+		keys = new long[length];
+		heads = new int[length];
+		used = new boolean[length];
+		cellCount = 0;
+		for(int slot = 0; slot < oldKeys.length; ++slot)
+		{
+			if(!oldUsed[slot] || oldHeads[slot] == NONE) continue;
+			int newSlot = findSlot(oldKeys[slot]);
+			used[newSlot] = true;
+			keys[newSlot] = oldKeys[slot];
+			heads[newSlot] = oldHeads[slot];
+			++cellCount;
+		}
+	}
+	
+	/**
+	 * Grows the arrays indexed by id so that they can hold at least the specified number of ids.
+	 * 
+	 * @param capacity the number of ids needed
+	 */
+	private void growPoints(int capacity)
+	{
+		int length = Math.max(capacity, 2 * present.length);
+		xs = Arrays.copyOf(xs, length);
+		ys = Arrays.copyOf(ys, length);
+		cellOf = Arrays.copyOf(cellOf, length);
+		next = Arrays.copyOf(next, length);
+		prev = Arrays.copyOf(prev, length);
+		present = Arrays.copyOf(present, length);
+	}
+}
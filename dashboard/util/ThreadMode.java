@@ -0,0 +1,125 @@
+package dashboard.util;
+
+import java.lang.reflect.Method;
+
+/**
+ * Provides the thread modes used to run Generators and Button actions, as well as a method to create
+ * threads in a given mode. Virtual threads are only available on JVMs that support them (Java 21 and
+ * later); on older JVMs, threads requested in {@link #VIRTUAL VIRTUAL} mode are created as ordinary
+ * platform threads instead.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class ThreadMode
+{
+	/**
+	 * Used to run work on ordinary platform (operating system) threads
+	 */
+	public static final int PLATFORM = 0;
+	
+	/**
+	 * Used to run work on virtual threads, if the JVM supports them
+	 */
+	public static final int VIRTUAL = 1;
+	
+	/**
+	 * Used to run a Button's actions directly on the thread that triggered them, usually the event
+	 * dispatch thread. Only valid for Buttons, and only suitable for actions that return quickly.
+	 */
+	public static final int INLINE = 2;
+	
+	/**
+	 * The method Thread.ofVirtual(), or null if virtual threads are not supported
+	 */
+	private static final Method OF_VIRTUAL;
+	
+	/**
+	 * The method Thread.Builder.unstarted(Runnable), or null if virtual threads are not supported
+	 */
+	private static final Method UNSTARTED;
+	
+	static
+	{
+		Method ofVirtual = null;
+		Method unstarted = null;
+		try
+		{
+			ofVirtual = Thread.class.getMethod("ofVirtual");
+			unstarted = Class.forName("java.lang.Thread$Builder").getMethod("unstarted", Runnable.class);
+			// On some JVMs virtual threads are a preview feature, in which case this throws
+			unstarted.invoke(ofVirtual.invoke(null), new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					// Do nothing
+				}
+			});
+		}
+		catch(Exception e)
+		{
+			ofVirtual = null;
+			unstarted = null;
+		}
+		OF_VIRTUAL = ofVirtual;
+		UNSTARTED = unstarted;
+	}
+	
+	/**
+	 * Returns whether the specified thread mode is valid for a Generator or a whole dashboard.
+	 * 
+	 * @param mode the thread mode to check
+	 * @return whether the mode is either {@link #PLATFORM PLATFORM} or {@link #VIRTUAL VIRTUAL}
+	 */
+	public static boolean isValid(int mode)
+	{
+		return mode == PLATFORM || mode == VIRTUAL;
+	}
+	
+	/**
+	 * Returns whether the specified thread mode is valid for a Button's actions.
+	 * 
+	 * @param mode the thread mode to check
+	 * @return whether the mode is {@link #PLATFORM PLATFORM}, {@link #VIRTUAL VIRTUAL}, or {@link #INLINE INLINE}
+	 */
+	public static boolean isValidForButton(int mode)
+	{
+		return isValid(mode) || mode == INLINE;
+	}
+	
+	/**
+	 * Returns whether the JVM supports virtual threads.
+	 * 
+	 * @return whether threads created in {@link #VIRTUAL VIRTUAL} mode will actually be virtual
+	 */
+	public static boolean isVirtualSupported()
+	{
+		return UNSTARTED != null;
+	}
+	
+	/**
+	 * Creates an unstarted thread that will execute the specified Runnable. If virtual threads
+	 * are requested but not supported, or if {@link #INLINE INLINE} mode is requested, a platform
+	 * thread is created instead.
+	 * 
+	 * @param mode the thread mode, either {@link #PLATFORM PLATFORM} or {@link #VIRTUAL VIRTUAL}
+	 * @param r the Runnable to be executed by the thread
+	 * @return the new, unstarted thread
+	 */
+	public static Thread newThread(int mode, Runnable r)
+	{
+		if(mode == VIRTUAL && isVirtualSupported())
+		{
+			try
+			{
+				return (Thread)UNSTARTED.invoke(OF_VIRTUAL.invoke(null), r);
+			}
+			catch(Exception e)
+			{
+				// Fall through and use a platform thread
+			}
+		}
+		return new Thread(r);
+	}
+}
@@ -0,0 +1,283 @@
+package dashboard.util;
+
+import acm.graphics.GPoint;
+
+/**
+ * Provides a mutable two-dimensional vector with double-precision components. Unlike the methods of
+ * {@link GPointMath GPointMath}, which return a new GPoint for every result, the operations of a Vector2D
+ * change the vector in place and return it, so that they can be chained without allocating any objects.
+ * This makes Vector2D suitable for code that runs every frame or every step, where a few scratch vectors
+ * can be reused indefinitely.
+ * <p>
+ * Vector2D is not thread-safe.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public final class Vector2D
+{
+	/**
+	 * The components of the vector
+	 */
+	private double x, y;
+	
+	/**
+	 * Creates a zero vector.
+	 */
+	public Vector2D()
+	{
+		this(0.0, 0.0);
+	}
+	
+	/**
+	 * Creates a vector with the specified components.
+	 * 
+	 * @param x the x-component of the vector
+	 * @param y the y-component of the vector
+	 */
+	public Vector2D(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
+	}
+	
+	/**
+	 * Creates a vector from the origin to the specified point.
+	 * 
+	 * @param p the endpoint of the vector
+	 */
+	public Vector2D(GPoint p)
+	{
+		this(p.getX(), p.getY());
+	}
+	
+	/**
+	 * Returns the x-component of the vector.
+	 * 
+	 * @return the x-component of the vector
+	 */
+	public double getX()
+	{
+		return x;
+	}
+	
+	/**
+	 * Returns the y-component of the vector.
+	 * 
+	 * @return the y-component of the vector
+	 */
+	public double getY()
+	{
+		return y;
+	}
+	
+	/**
+	 * Sets the components of the vector.
+	 * 
+	 * @param x the new x-component of the vector
+	 * @param y the new y-component of the vector
+	 * @return the current vector
+	 */
+	public Vector2D set(double x, double y)
+	{
+		this.x = x;
+		this.y = y;
+		return this;
+	}
+	
+	/**
+	 * Sets the vector to point from the origin to the specified point.
+	 * 
+	 * @param p the new endpoint of the vector
+	 * @return the current vector
+	 */
+	public Vector2D set(GPoint p)
+	{
+		return set(p.getX(), p.getY());
+	}
+	
+	/**
+	 * Sets the vector to be equal to another vector.
+	 * 
+	 * @param v the vector to copy
+	 * @return the current vector
+	 */
+	public Vector2D set(Vector2D v)
+	{
+		return set(v.x, v.y);
+	}
+	
+	/**
+	 * Adds the specified components to the vector.
+	 * 
+	 * @param dx the amount to add to the x-component
+	 * @param dy the amount to add to the y-component
+	 * @return the current vector
+	 */
+	public Vector2D add(double dx, double dy)
+	{
+		x += dx;
+		y += dy;
+		return this;
+	}
+	
+	/**
+	 * Adds another vector to the vector.
+	 * 
+	 * @param v the vector to add
+	 * @return the current vector
+	 */
+	public Vector2D add(Vector2D v)
+	{
+		return add(v.x, v.y);
+	}
+	
+	/**
+	 * Subtracts another vector from the vector.
+	 * 
+	 * @param v the vector to subtract
+	 * @return the current vector
+	 */
+	public Vector2D sub(Vector2D v)
+	{
+		return add(-v.x, -v.y);
+	}
+	
+	/**
+	 * Subtracts the vector from the origin to the specified point from the vector.
+	 * 
+	 * @param p the endpoint of the vector to subtract
+	 * @return the current vector
+	 */
+	public Vector2D sub(GPoint p)
+	{
+		return add(-p.getX(), -p.getY());
+	}
+	
+	/**
+	 * Adds a multiple of another vector to the vector.
+	 * 
+	 * @param v the vector to add
+	 * @param factor the factor by which the other vector is scaled before it is added
+	 * @return the current vector
+	 */
+	public Vector2D addScaled(Vector2D v, double factor)
+	{
+		return add(v.x * factor, v.y * factor);
+	}
+	
+	/**
+	 * Scales the vector by the specified factor.
+	 * 
+	 * @param factor the scale factor
+	 * @return the current vector
+	 */
+	public Vector2D scale(double factor)
+	{
+		x *= factor;
+		y *= factor;
+		return this;
+	}
+	
+	/**
+	 * Rotates the vector counterclockwise by the angle with the specified sine and cosine. Rotating
+	 * many vectors by the same angle this way only computes the sine and cosine once.
+	 * 
+	 * @param sin the sine of the angle
+	 * @param cos the cosine of the angle
+	 * @return the current vector
+	 */
+	public Vector2D rotate(double sin, double cos)
+	{
+		double newX = x * cos - y * sin;
+		y = x * sin + y * cos;
+		x = newX;
+		return this;
+	}
+	
+	/**
+	 * Rotates the vector counterclockwise by the specified angle in radians.
+	 * 
+	 * @param angle the angle in radians by which to rotate the vector
+	 * @return the current vector
+	 */
+	public Vector2D rotate(double angle)
+	{
+		return rotate(Math.sin(angle), Math.cos(angle));
+	}
+	
+	/**
+	 * Scales the vector to a length of 1. The zero vector is left unchanged.
+	 * 
+	 * @return the current vector
+	 */
+	public Vector2D normalize()
+	{
+		double norm = norm();
+		return norm == 0.0 ? this : scale(1.0 / norm);
+	}
+	
+	/**
+	 * Returns the 2-norm of the vector.
+	 * 
+	 * @return the 2-norm of the vector
+	 */
+	public double norm()
+	{
+		return Math.sqrt(normsq());
+	}
+	
+	/**
+	 * Returns the square of the 2-norm of the vector.
+	 * 
+	 * @return the square of the 2-norm of the vector
+	 */
+	public double normsq()
+	{
+		return x * x + y * y;
+	}
+	
+	/**
+	 * Returns the dot product of the vector and another vector.
+	 * 
+	 * @param v the other vector
+	 * @return the dot product of the two vectors
+	 */
+	public double dot(Vector2D v)
+	{
+		return x * v.x + y * v.y;
+	}
+	
+	/**
+	 * Returns the cross product of the vector and another vector.
+	 * 
+	 * @param v the other vector
+	 * @return the cross product of the two vectors
+	 */
+	public double cross(Vector2D v)
+	{
+		return x * v.y - y * v.x;
+	}
+	
+	/**
+	 * Returns a new GPoint at the endpoint of the vector.
+	 * 
+	 * @return a new GPoint at the endpoint of the vector
+	 */
+	public GPoint toGPoint()
+	{
+		return new GPoint(x, y);
+	}
+	
+	/**
+	 * Moves the specified GPoint to the endpoint of the vector, without allocating a new GPoint.
+	 * 
+	 * @param p the GPoint to move
+	 * @return the GPoint that was moved
+	 */
+	public GPoint toGPoint(GPoint p)
+	{
+		p.setLocation(x, y);
+		return p;
+	}
+}
@@ -0,0 +1,431 @@
+package examples;
+
+import java.util.Random;
+
+import acm.graphics.GPoint;
+import dashboard.util.CoordinateArrays;
+import dashboard.util.GPointMath;
+
+/**
+ * Compares the bulk kernels of {@link CoordinateArrays CoordinateArrays} against the equivalent loop over
+ * an array of GPoints with {@link GPointMath GPointMath}, which allocates a new GPoint for every
+ * intermediate vector. Each kernel is first checked against its scalar loop on the same random points,
+ * and then both are timed over many passes after warming up. The best of several trials is reported, in
+ * nanoseconds per point, together with the speedup of the kernel.
+ * <p>
+ * The number of points defaults to 4096, the default capacity of a FleetGenerator, and can be passed as
+ * the first argument. The exit status is 1 if any kernel disagrees with its scalar loop.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class CoordinateArraysBenchmark
+{
+	/**
+	 * The number of points each timed trial covers, which sets the number of passes over the points
+	 */
+	private static final long POINTS_PER_TRIAL = 20000000;
+	
+	/**
+	 * The number of timed trials of each loop, of which the fastest is reported
+	 */
+	private static final int TRIALS = 5;
+	
+	/**
+	 * The largest difference allowed between the results of a kernel and its scalar loop
+	 */
+	private static final double TOLERANCE = 1e-9;
+	
+	/**
+	 * The position, bearing, and scale used by the kernels that need them
+	 */
+	private static final double PX = 3.0, PY = -2.0, ANGLE = 0.3, STEP = 0.02, RADIUS = 50.0, SCALE = 1.5;
+	
+	/**
+	 * The coordinates of the points and of their velocities
+	 */
+	private static double[] xs, ys, vxs, vys;
+	
+	/**
+	 * The arrays in which the kernels store their results
+	 */
+	private static double[] outXs, outYs, out;
+	
+	/**
+	 * The array in which the range kernel stores its result
+	 */
+	private static boolean[] mask;
+	
+	/**
+	 * The same points and velocities as GPoints
+	 */
+	private static GPoint[] points, velocities;
+	
+	/**
+	 * The arrays in which the scalar loops store their results
+	 */
+	private static GPoint[] outPoints;
+	
+	/**
+	 * The array in which the scalar loops store their scalar results
+	 */
+	private static double[] outValues;
+	
+	/**
+	 * The array in which the scalar range loop stores its result
+	 */
+	private static boolean[] outMask;
+	
+	/**
+	 * Accumulates the results of the timed loops, so that they cannot be optimized away
+	 */
+	private static double checksum = 0.0;
+	
+	/**
+	 * Runs the benchmark and prints the results.
+	 * 
+	 * @param args the number of points, optionally
+	 */
+	public static void main(String[] args)
+	{
+		final int n = args.length > 0 ? Integer.parseInt(args[0]) : 4096;
+		final GPoint position = new GPoint(PX, PY);
+		final GPoint bearing = new GPoint(Math.cos(ANGLE), Math.sin(ANGLE));
+		outXs = new double[n];
+		outYs = new double[n];
+		out = new double[n];
+		mask = new boolean[n];
+		outPoints = new GPoint[n];
+		outValues = new double[n];
+		outMask = new boolean[n];
+		
+		Kernel[] kernels = {
+			new Kernel("translate")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.translate(xs, ys, 0, n, PX, PY);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i) points[i] = GPointMath.sum(points[i], position);
+				}
+				
+				@Override
+				double error()
+				{
+					return pointError(xs, ys, points);
+				}
+			},
+			new Kernel("rotate")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.rotate(xs, ys, 0, n, ANGLE);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i) points[i] = GPointMath.rot(points[i], ANGLE);
+				}
+				
+				@Override
+				double error()
+				{
+					return pointError(xs, ys, points);
+				}
+			},
+			new Kernel("addScaled")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.addScaled(xs, ys, 0, n, vxs, vys, STEP, outXs, outYs);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i) outPoints[i] = GPointMath.sum(points[i], GPointMath.scale(velocities[i], STEP));
+				}
+				
+				@Override
+				double error()
+				{
+					return pointError(outXs, outYs, outPoints);
+				}
+			},
+			new Kernel("distance")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.distance(xs, ys, 0, n, PX, PY, out);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i) outValues[i] = GPointMath.norm(GPointMath.diff(points[i], position));
+				}
+				
+				@Override
+				double error()
+				{
+					return valueError(out, outValues);
+				}
+			},
+			new Kernel("dot")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.dot(xs, ys, 0, n, PX, PY, bearing.getX(), bearing.getY(), out);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i) outValues[i] = GPointMath.dot(bearing, GPointMath.diff(points[i], position));
+				}
+				
+				@Override
+				double error()
+				{
+					return valueError(out, outValues);
+				}
+			},
+			new Kernel("cross")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.cross(xs, ys, 0, n, PX, PY, bearing.getX(), bearing.getY(), out);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i) outValues[i] = GPointMath.cross(bearing, GPointMath.diff(points[i], position));
+				}
+				
+				@Override
+				double error()
+				{
+					return valueError(out, outValues);
+				}
+			},
+			new Kernel("project")
+			{
+				@Override
+				void arrays()
+				{
+					CoordinateArrays.project(xs, ys, 0, n, PX, PY, bearing.getX(), bearing.getY(), SCALE, outXs, outYs);
+				}
+				
+				@Override
+				void points()
+				{
+					for(int i = 0; i < n; ++i)
+					{
+						GPoint offset = GPointMath.diff(points[i], position);
+						outPoints[i] = new GPoint(-SCALE * GPointMath.cross(bearing, offset), -SCALE * GPointMath.dot(bearing, offset));
+					}
+				}
+				
+				@Override
+				double error()
+				{
+					return pointError(outXs, outYs, outPoints);
+				}
+			},
+			new Kernel("withinRange")
+			{
+				@Override
+				void arrays()
+				{
+					checksum += CoordinateArrays.withinRange(xs, ys, 0, n, PX, PY, RADIUS, mask);
+				}
+				
+				@Override
+				void points()
+				{
+					int count = 0;
+					for(int i = 0; i < n; ++i)
+					{
+						outMask[i] = GPointMath.normsq(GPointMath.diff(points[i], position)) <= RADIUS * RADIUS;
+						if(outMask[i]) ++count;
+					}
+					checksum += count;
+				}
+				
+				@Override
+				double error()
+				{
+					int mismatches = 0;
+					for(int i = 0; i < n; ++i)
+					{
+						if(mask[i] != outMask[i]) ++mismatches;
+					}
+					return mismatches;
+				}
+			}
+		};
+		
+		long passes = Math.max(1, POINTS_PER_TRIAL / n);
+		System.out.println(n + " points, " + passes + " passes per trial, best of " + TRIALS + " trials");
+		System.out.println(String.format("%-12s%14s%14s%10s%12s", "kernel", "arrays ns/pt", "GPoint ns/pt", "speedup", "max error"));
+		boolean passed = true;
+		for(Kernel kernel : kernels)
+		{
+			fill(n);
+			kernel.arrays();
+			kernel.points();
+			double error = kernel.error();
+			if(!(error <= TOLERANCE)) passed = false;
+			
+			fill(n);
+			time(kernel, true, passes); // Warm up
+			time(kernel, false, passes);
+			double arraysTime = Double.MAX_VALUE, pointsTime = Double.MAX_VALUE;
+			for(int trial = 0; trial < TRIALS; ++trial)
+			{
+				arraysTime = Math.min(arraysTime, time(kernel, true, passes));
+				pointsTime = Math.min(pointsTime, time(kernel, false, passes));
+			}
+			double arraysPerPoint = arraysTime / passes / n, pointsPerPoint = pointsTime / passes / n;
+			System.out.println(String.format("%-12s%14.3f%14.3f%9.1fx%12.2g", kernel.name, arraysPerPoint, pointsPerPoint, pointsPerPoint / arraysPerPoint, error));
+		}
+		System.out.println("(checksum " + checksum + ")");
+		System.out.println(passed ? "PASSED" : "FAILED: a kernel disagrees with its GPoint loop");
+		System.exit(passed ? 0 : 1);
+	}
+	
+	/**
+	 * Fills the points and velocities with the same random values in both layouts.
+	 * 
+	 * @param n the number of points
+	 */
+	private static void fill(int n)
+	{
+		Random rand = new Random(1);
+		xs = new double[n];
+		ys = new double[n];
+		vxs = new double[n];
+		vys = new double[n];
+		points = new GPoint[n];
+		velocities = new GPoint[n];
+		for(int i = 0; i < n; ++i)
+		{
+			xs[i] = 200.0 * rand.nextDouble() - 100.0;
+			ys[i] = 200.0 * rand.nextDouble() - 100.0;
+			vxs[i] = 10.0 * rand.nextGaussian();
+			vys[i] = 10.0 * rand.nextGaussian();
+			points[i] = new GPoint(xs[i], ys[i]);
+			velocities[i] = new GPoint(vxs[i], vys[i]);
+		}
+	}
+	
+	/**
+	 * Runs one version of a kernel for the specified number of passes and returns the elapsed time.
+	 * 
+	 * @param kernel the kernel to run
+	 * @param arrays whether to run the CoordinateArrays version rather than the GPoint loop
+	 * @param passes the number of passes over the points
+	 * @return the elapsed time, measured in nanoseconds
+	 */
+	private static double time(Kernel kernel, boolean arrays, long passes)
+	{
+		long start = System.nanoTime();
+		for(long pass = 0; pass < passes; ++pass)
+		{
+			if(arrays) kernel.arrays();
+			else kernel.points();
+		}
+		long elapsed = System.nanoTime() - start;
+		checksum += arrays ? out[0] + outXs[0] + xs[0] : outValues[0] + (outPoints[0] == null ? 0.0 : outPoints[0].getX()) + points[0].getX();
+		return elapsed;
+	}
+	
+	/**
+	 * Returns the largest difference between points stored as coordinate arrays and as GPoints.
+	 * 
+	 * @param xs the x-coordinates of the points
+	 * @param ys the y-coordinates of the points
+	 * @param points the same points as GPoints
+	 * @return the largest difference in either coordinate
+	 */
+	private static double pointError(double[] xs, double[] ys, GPoint[] points)
+	{
+		double error = 0.0;
+		for(int i = 0; i < points.length; ++i)
+		{
+			error = Math.max(error, Math.abs(xs[i] - points[i].getX()));
+			error = Math.max(error, Math.abs(ys[i] - points[i].getY()));
+		}
+		return error;
+	}
+	
+	/**
+	 * Returns the largest difference between two arrays of values.
+	 * 
+	 * @param values the first values
+	 * @param expected the second values
+	 * @return the largest difference between matching values
+	 */
+	private static double valueError(double[] values, double[] expected)
+	{
+		double error = 0.0;
+		for(int i = 0; i < values.length; ++i)
+		{
+			error = Math.max(error, Math.abs(values[i] - expected[i]));
+		}
+		return error;
+	}
+	
+	/**
+	 * A CoordinateArrays kernel together with the equivalent loop over GPoints.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private abstract static class Kernel
+	{
+		/**
+		 * The name of the kernel
+		 */
+		private final String name;
+		
+		/**
+		 * Creates a Kernel with the specified name.
+		 * 
+		 * @param name the name of the kernel
+		 */
+		private Kernel(String name)
+		{
+			this.name = name;
+		}
+		
+		/**
+		 * Runs the CoordinateArrays kernel once over all the points.
+		 */
+		abstract void arrays();
+		
+		/**
+		 * Runs the equivalent GPointMath loop once over all the points.
+		 */
+		abstract void points();
+		
+		/**
+		 * Returns the largest difference between the results of the last run of each version.
+		 * 
+		 * @return the largest difference between the results
+		 */
+		abstract double error();
+	}
+}
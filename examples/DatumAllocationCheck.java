@@ -0,0 +1,103 @@
+package examples;
+
+import java.lang.management.ManagementFactory;
+
+import dashboard.generator.DatumGenerator;
+import dashboard.generator.ScriptedThrustSchedule;
+import dashboard.generator.StateSink;
+
+/**
+ * Checks that the physics step of {@link DatumGenerator DatumGenerator} allocates no memory. For every
+ * integrator, a headless DatumGenerator is warmed up and then run for a number of steps with changing
+ * thrust and a few distant targets, while the bytes allocated by the current thread are measured with
+ * {@link com.sun.management.ThreadMXBean#getThreadAllocatedBytes(long) getThreadAllocatedBytes}.
+ * <p>
+ * The number of measured steps defaults to 1,000,000 and can be passed as the first argument. The exit
+ * status is 0 if no integrator allocated anything and 1 otherwise. The check needs a JVM that supports
+ * measuring thread allocation, such as HotSpot.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class DatumAllocationCheck
+{
+	/**
+	 * The number of steps run before measuring, so that the step has been compiled
+	 */
+	private static final long WARMUP_STEPS = 200000;
+	
+	/**
+	 * The number of distant targets the proximity check has to consider every step
+	 */
+	private static final int NUM_TARGETS = 1000;
+	
+	/**
+	 * The names of the integrators, indexed by their constants in DatumGenerator
+	 */
+	private static final String[] INTEGRATOR_NAMES = {"EXPLICIT_EULER", "SEMI_IMPLICIT_EULER", "VERLET", "RK4"};
+	
+	/**
+	 * Runs the check.
+	 * 
+	 * @param args the number of steps to measure, optionally
+	 */
+	public static void main(String[] args)
+	{
+		long steps = args.length > 0 ? Long.parseLong(args[0]) : 1000000;
+		com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean)ManagementFactory.getThreadMXBean();
+		if(!threads.isThreadAllocatedMemorySupported())
+		{
+			System.out.println("Thread allocation measurement is not supported by this JVM");
+			System.exit(1);
+		}
+		threads.setThreadAllocatedMemoryEnabled(true);
+		long thread = Thread.currentThread().getId();
+		ScriptedThrustSchedule schedule = ScriptedThrustSchedule.random(42, 64, 500, 3.0, 10.0);
+		Checksum sink = new Checksum();
+		
+		// Measuring itself may allocate, so that amount is subtracted from every result
+		long overhead = threads.getThreadAllocatedBytes(thread);
+		overhead = threads.getThreadAllocatedBytes(thread) - overhead;
+		
+		boolean passed = true;
+		for(int integrator = DatumGenerator.EXPLICIT_EULER; integrator <= DatumGenerator.RK4; ++integrator)
+		{
+			DatumGenerator gen = new DatumGenerator(100, false);
+			gen.setIntegrator(integrator);
+			for(int i = 0; i < NUM_TARGETS; ++i)
+			{
+				gen.addTarget("target" + i, 1e6 + 100.0 * i, 1e6);
+			}
+			gen.simulate(schedule, WARMUP_STEPS, sink);
+			long before = threads.getThreadAllocatedBytes(thread);
+			gen.simulate(schedule, steps, sink);
+			long allocated = threads.getThreadAllocatedBytes(thread) - before - overhead;
+			gen.close();
+			System.out.println(INTEGRATOR_NAMES[integrator] + ": " + allocated + " bytes over " + steps + " steps");
+			if(allocated > 0) passed = false;
+		}
+		System.out.println("(checksum " + sink.sum + ")");
+		System.out.println(passed ? "PASSED" : "FAILED");
+		System.exit(passed ? 0 : 1);
+	}
+	
+	/**
+	 * A StateSink that sums the positions it receives, so that the simulated state is used.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static class Checksum implements StateSink
+	{
+		/**
+		 * The sum of the positions received so far
+		 */
+		private double sum = 0.0;
+		
+		@Override
+		public void accept(long step, double x, double y, double bearingX, double bearingY, double speed, double rotSpeed)
+		{
+			sum += x + y;
+		}
+	}
+}
@@ -0,0 +1,268 @@
+package examples;
+
+import dashboard.generator.DatumGenerator;
+import dashboard.generator.ScriptedThrustSchedule;
+import dashboard.generator.StateSink;
+
+/**
+ * Compares the accuracy and speed of the integrators of {@link DatumGenerator DatumGenerator}. Each
+ * integrator is run headless at several physics steps, and its result after a fixed amount of simulated
+ * time is compared against:
+ * <ul>
+ * <li>the closed-form solution for straight flight from rest under constant main thrust, where the
+ * quadratic drag gives a speed of V tanh(t / T) and a distance of V T ln cosh(t / T);</li>
+ * <li>the closed-form solution for turning from rest under constant rotational thrust, which has the
+ * same form for the rotational speed and the heading;</li>
+ * <li>a reference trajectory computed with RK4 at a 1 ms step, for a manoeuvre that combines both and
+ * has no closed form.</li>
+ * </ul>
+ * Finally, the number of steps each integrator runs per second is measured.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class IntegratorBenchmark
+{
+	/**
+	 * The mass of the ship, matching DatumGenerator
+	 */
+	private static final double MASS = 10.0;
+	
+	/**
+	 * The coefficient of the translational drag, matching DatumGenerator
+	 */
+	private static final double RESISTANCE_COEFF = 2.0;
+	
+	/**
+	 * The coefficient of the rotational drag, matching DatumGenerator
+	 */
+	private static final double ROT_RESISTANCE_COEFF = 2.0;
+	
+	/**
+	 * The rate in radians per second at which the heading turns per unit of rotational speed, matching DatumGenerator
+	 */
+	private static final double ROT_RATE = 0.25;
+	
+	/**
+	 * The thrust from the main engines in the straight flight
+	 */
+	private static final double MAIN_THRUST = 100.0;
+	
+	/**
+	 * The thrust from the rotational engines in the turn
+	 */
+	private static final double ROT_THRUST = 2.0;
+	
+	/**
+	 * The amount of simulated time each accuracy run covers, measured in milliseconds
+	 */
+	private static final int DURATION = 10000;
+	
+	/**
+	 * The physics steps that are compared, measured in milliseconds
+	 */
+	private static final int[] STEPS = {5, 20, 50, 100};
+	
+	/**
+	 * The physics step of the reference trajectory, measured in milliseconds
+	 */
+	private static final int REFERENCE_STEP = 1;
+	
+	/**
+	 * The number of steps each throughput run takes
+	 */
+	private static final long THROUGHPUT_STEPS = 2000000;
+	
+	/**
+	 * The names of the integrators, indexed by their constants in DatumGenerator
+	 */
+	private static final String[] INTEGRATOR_NAMES = {"explicit", "semi-impl", "Verlet", "RK4"};
+	
+	/**
+	 * Runs the benchmark and prints the results.
+	 * 
+	 * @param args unused
+	 */
+	public static void main(String[] args)
+	{
+		double t = DURATION / 1000.0;
+		
+		// Straight flight north from rest
+		double terminalSpeed = Math.sqrt(MAIN_THRUST / RESISTANCE_COEFF);
+		double timeConstant = MASS / Math.sqrt(MAIN_THRUST * RESISTANCE_COEFF);
+		double exactDistance = terminalSpeed * timeConstant * logCosh(t / timeConstant);
+		System.out.println("Straight flight: position error after " + t + " s (exact distance " + format(exactDistance) + ")");
+		printHeader();
+		for(int step : STEPS)
+		{
+			StringBuilder row = new StringBuilder(rowLabel(step));
+			for(int integrator = DatumGenerator.EXPLICIT_EULER; integrator <= DatumGenerator.RK4; ++integrator)
+			{
+				FinalState state = run(integrator, step, DURATION / step, new ScriptedThrustSchedule().addSegment(0, 0.0, MAIN_THRUST));
+				row.append(cell(Math.hypot(state.x, state.y - exactDistance)));
+			}
+			System.out.println(row);
+		}
+		
+		// Turn on the spot from rest, starting north
+		double terminalRotSpeed = Math.sqrt(ROT_THRUST / ROT_RESISTANCE_COEFF);
+		double rotTimeConstant = 1.0 / Math.sqrt(ROT_THRUST * ROT_RESISTANCE_COEFF);
+		double exactHeading = Math.PI / 2 + ROT_RATE * terminalRotSpeed * rotTimeConstant * logCosh(t / rotTimeConstant);
+		System.out.println();
+		System.out.println("Turn: heading error in radians after " + t + " s (exact turn " + format(exactHeading - Math.PI / 2) + ")");
+		printHeader();
+		for(int step : STEPS)
+		{
+			StringBuilder row = new StringBuilder(rowLabel(step));
+			for(int integrator = DatumGenerator.EXPLICIT_EULER; integrator <= DatumGenerator.RK4; ++integrator)
+			{
+				FinalState state = run(integrator, step, DURATION / step, new ScriptedThrustSchedule().addSegment(0, ROT_THRUST, 0.0));
+				double cross = Math.cos(exactHeading) * state.bearingY - Math.sin(exactHeading) * state.bearingX;
+				double dot = Math.cos(exactHeading) * state.bearingX + Math.sin(exactHeading) * state.bearingY;
+				row.append(cell(Math.abs(Math.atan2(cross, dot))));
+			}
+			System.out.println(row);
+		}
+		
+		// Combined thrust and turning, against a fine RK4 trajectory. The schedule changes every 500 ms.
+		FinalState reference = run(DatumGenerator.RK4, REFERENCE_STEP, DURATION / REFERENCE_STEP, manoeuvre(REFERENCE_STEP));
+		System.out.println();
+		System.out.println("Manoeuvre: position error after " + t + " s against RK4 at " + REFERENCE_STEP + " ms");
+		printHeader();
+		for(int step : STEPS)
+		{
+			StringBuilder row = new StringBuilder(rowLabel(step));
+			for(int integrator = DatumGenerator.EXPLICIT_EULER; integrator <= DatumGenerator.RK4; ++integrator)
+			{
+				FinalState state = run(integrator, step, DURATION / step, manoeuvre(step));
+				row.append(cell(Math.hypot(state.x - reference.x, state.y - reference.y)));
+			}
+			System.out.println(row);
+		}
+		
+		// Throughput
+		System.out.println();
+		System.out.println("Throughput: million steps per second");
+		printHeader();
+		StringBuilder row = new StringBuilder(rowLabel(STEPS[1]));
+		for(int integrator = DatumGenerator.EXPLICIT_EULER; integrator <= DatumGenerator.RK4; ++integrator)
+		{
+			ScriptedThrustSchedule schedule = manoeuvre(STEPS[1]);
+			run(integrator, STEPS[1], THROUGHPUT_STEPS / 4, schedule); // Warm up
+			long start = System.nanoTime();
+			run(integrator, STEPS[1], THROUGHPUT_STEPS, schedule);
+			double seconds = (System.nanoTime() - start) / 1e9;
+			row.append(cell(THROUGHPUT_STEPS / seconds / 1e6));
+		}
+		System.out.println(row);
+	}
+	
+	/**
+	 * Runs a headless DatumGenerator from its initial state and returns its final state.
+	 * 
+	 * @param integrator the integrator to use
+	 * @param step the physics step, measured in milliseconds
+	 * @param steps the number of steps to run
+	 * @param schedule the thrust from the engines during each step
+	 * @return the state after the last step
+	 */
+	private static FinalState run(int integrator, int step, long steps, ScriptedThrustSchedule schedule)
+	{
+		DatumGenerator gen = new DatumGenerator(100, false);
+		gen.setIntegrator(integrator);
+		gen.setCalcInterval(step);
+		FinalState state = new FinalState();
+		gen.simulate(schedule, steps, state);
+		gen.close();
+		return state;
+	}
+	
+	/**
+	 * Returns the same combined manoeuvre for any physics step: a seeded random sequence of thrust
+	 * segments, each lasting 500 ms of simulated time.
+	 * 
+	 * @param step the physics step, measured in milliseconds
+	 * @return the thrust schedule of the manoeuvre
+	 */
+	private static ScriptedThrustSchedule manoeuvre(int step)
+	{
+		return ScriptedThrustSchedule.random(7, DURATION / 500, 500 / step, ROT_THRUST, MAIN_THRUST);
+	}
+	
+	/**
+	 * Returns ln(cosh(x)) without overflowing for large x.
+	 * 
+	 * @param x a nonnegative number
+	 * @return ln(cosh(x))
+	 */
+	private static double logCosh(double x)
+	{
+		return x + Math.log1p(Math.exp(-2.0 * x)) - Math.log(2.0);
+	}
+	
+	/**
+	 * Prints the header of a table with one column per integrator.
+	 */
+	private static void printHeader()
+	{
+		StringBuilder header = new StringBuilder(String.format("%8s", "step"));
+		for(String name : INTEGRATOR_NAMES) header.append(String.format("%12s", name));
+		System.out.println(header);
+	}
+	
+	/**
+	 * Returns the label of a table row for the specified physics step.
+	 * 
+	 * @param step the physics step, measured in milliseconds
+	 * @return the label of the row
+	 */
+	private static String rowLabel(int step)
+	{
+		return String.format("%8s", step + " ms");
+	}
+	
+	/**
+	 * Returns a table cell holding the specified value.
+	 * 
+	 * @param value the value of the cell
+	 * @return the formatted cell
+	 */
+	private static String cell(double value)
+	{
+		return String.format("%12s", format(value));
+	}
+	
+	/**
+	 * Formats a value with four significant digits.
+	 * 
+	 * @param value the value to format
+	 * @return the formatted value
+	 */
+	private static String format(double value)
+	{
+		return String.format("%.4g", value);
+	}
+	
+	/**
+	 * A StateSink that keeps only the most recent state it receives.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static class FinalState implements StateSink
+	{
+		/**
+		 * The most recent position and bearing
+		 */
+		private double x, y, bearingX, bearingY;
+		
+		@Override
+		public void accept(long step, double x, double y, double bearingX, double bearingY, double speed, double rotSpeed)
+		{
+			this.x = x;
+			this.y = y;
+			this.bearingX = bearingX;
+			this.bearingY = bearingY;
+		}
+	}
+}
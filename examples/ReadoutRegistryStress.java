@@ -0,0 +1,299 @@
+package examples;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import dashboard.generator.Generator;
+import dashboard.readout.NumberUpdatable;
+import dashboard.readout.Readout;
+
+/**
+ * Stress test for adding and removing Readouts while Generators are running. Several Generators tick
+ * as fast as the scheduler allows, while several threads add and remove Readouts on all of them at once.
+ * Afterwards, the test checks that:
+ * <ul>
+ * <li>no Generator threw an exception, such as a ConcurrentModificationException, while updating;</li>
+ * <li>every Generator holds exactly the Readouts that should still be registered, so no add or remove was lost;</li>
+ * <li>every registered Readout keeps receiving updates, and no removed Readout does.</li>
+ * </ul>
+ * The test runs for 5 seconds by default; another duration in seconds can be passed as the first argument.
+ * The exit status is 0 if every check passed and 1 otherwise.
+ * 
+ * @author Mark Sabini
+ *
+ */
+public class ReadoutRegistryStress
+{
+	/**
+	 * The number of Generators ticking at once
+	 */
+	private static final int NUM_GENERATORS = 4;
+	
+	/**
+	 * The number of threads adding and removing Readouts at once
+	 */
+	private static final int NUM_MUTATORS = 4;
+	
+	/**
+	 * The number of keys each mutator thread works with
+	 */
+	private static final int KEYS_PER_MUTATOR = 32;
+	
+	/**
+	 * The time in milliseconds the Generators are given to update the Readouts once mutation has stopped
+	 */
+	private static final long SETTLE_TIME = 200;
+	
+	/**
+	 * The exceptions thrown by the Generators while updating
+	 */
+	private static final ConcurrentLinkedQueue<Throwable> failures = new ConcurrentLinkedQueue<Throwable>();
+	
+	/**
+	 * Runs the stress test.
+	 * 
+	 * @param args the duration of the test in seconds, optionally
+	 * @throws InterruptedException if the main thread is interrupted while waiting
+	 */
+	public static void main(String[] args) throws InterruptedException
+	{
+		final long duration = TimeUnit.SECONDS.toNanos(args.length > 0 ? Long.parseLong(args[0]) : 5);
+		final StressGenerator[] generators = new StressGenerator[NUM_GENERATORS];
+		for(int i = 0; i < NUM_GENERATORS; ++i)
+		{
+			generators[i] = new StressGenerator();
+			generators[i].setActive(true);
+		}
+		
+		// Each mutator owns its own keys, so the final membership is known exactly
+		final List<Map<String, CountingReadout>> expected = new ArrayList<Map<String, CountingReadout>>();
+		final List<CountingReadout> removed = new ArrayList<CountingReadout>();
+		final AtomicLong mutations = new AtomicLong();
+		final CountDownLatch done = new CountDownLatch(NUM_MUTATORS);
+		for(int t = 0; t < NUM_MUTATORS; ++t)
+		{
+			final int id = t;
+			final Map<String, CountingReadout> registered = new HashMap<String, CountingReadout>();
+			expected.add(registered);
+			Thread mutator = new Thread(new Runnable()
+			{
+				@Override
+				public void run()
+				{
+					Random rand = new Random(id);
+					long end = System.nanoTime() + duration;
+					List<CountingReadout> retired = new ArrayList<CountingReadout>();
+					while(System.nanoTime() < end)
+					{
+						String key = "m" + id + "-" + rand.nextInt(KEYS_PER_MUTATOR);
+						CountingReadout current = registered.remove(key);
+						if(current == null)
+						{
+							CountingReadout readout = new CountingReadout();
+							for(StressGenerator generator : generators) generator.addReadout(key, readout);
+							registered.put(key, readout);
+						}
+						else
+						{
+							for(StressGenerator generator : generators) generator.removeReadout(key);
+							retired.add(current);
+						}
+						mutations.incrementAndGet();
+					}
+					synchronized(removed)
+					{
+						removed.addAll(retired);
+					}
+					done.countDown();
+				}
+			});
+			mutator.start();
+		}
+		done.await();
+		
+		boolean passed = true;
+		int live = 0;
+		for(Map<String, CountingReadout> registered : expected) live += registered.size();
+		for(int i = 0; i < NUM_GENERATORS; ++i)
+		{
+			int missing = 0;
+			for(Map<String, CountingReadout> registered : expected)
+			{
+				for(Map.Entry<String, CountingReadout> entry : registered.entrySet())
+				{
+					if(!generators[i].holds(entry.getKey(), entry.getValue())) ++missing;
+				}
+			}
+			if(missing > 0 || generators[i].count() != live)
+			{
+				System.out.println("FAIL: generator " + i + " holds " + generators[i].count() + " readouts, expected " + live + " (" + missing + " missing)");
+				passed = false;
+			}
+		}
+		
+		// Every live Readout should still be updated, and no removed Readout should be. Updates that
+		// began before the last removal are allowed to finish first.
+		Thread.sleep(SETTLE_TIME);
+		long[] liveBefore = new long[live];
+		long[] removedBefore = new long[removed.size()];
+		List<CountingReadout> liveReadouts = new ArrayList<CountingReadout>();
+		for(Map<String, CountingReadout> registered : expected) liveReadouts.addAll(registered.values());
+		for(int i = 0; i < live; ++i) liveBefore[i] = liveReadouts.get(i).getCount();
+		for(int i = 0; i < removedBefore.length; ++i) removedBefore[i] = removed.get(i).getCount();
+		Thread.sleep(SETTLE_TIME);
+		int stale = 0, updatedAfterRemoval = 0;
+		for(int i = 0; i < live; ++i)
+		{
+			if(liveReadouts.get(i).getCount() == liveBefore[i]) ++stale;
+		}
+		for(int i = 0; i < removedBefore.length; ++i)
+		{
+			if(removed.get(i).getCount() != removedBefore[i]) ++updatedAfterRemoval;
+		}
+		for(StressGenerator generator : generators) generator.setActive(false);
+		if(stale > 0)
+		{
+			System.out.println("FAIL: " + stale + " registered readouts stopped receiving updates");
+			passed = false;
+		}
+		if(updatedAfterRemoval > 0)
+		{
+			System.out.println("FAIL: " + updatedAfterRemoval + " removed readouts were still updated");
+			passed = false;
+		}
+		for(Throwable failure : failures)
+		{
+			System.out.println("FAIL: generator threw " + failure);
+			passed = false;
+		}
+		
+		long ticks = 0;
+		for(StressGenerator generator : generators) ticks += generator.getTicks();
+		System.out.println(mutations.get() + " adds/removes, " + ticks + " generator ticks, " + live + " readouts left registered");
+		System.out.println(passed ? "PASSED" : "FAILED");
+		System.exit(passed ? 0 : 1);
+	}
+	
+	/**
+	 * A Generator that sends a running tick count to its NumberUpdatables as fast as it can, and records
+	 * any exception thrown while doing so.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static class StressGenerator extends Generator
+	{
+		/**
+		 * The number of completed updates
+		 */
+		private final AtomicLong ticks = new AtomicLong();
+		
+		/**
+		 * Creates a StressGenerator that updates continuously.
+		 */
+		public StressGenerator()
+		{
+			super(0);
+		}
+		
+		@Override
+		public void generate()
+		{
+			try
+			{
+				long tick = ticks.incrementAndGet();
+				for(NumberUpdatable readout : readouts.getNumberUpdatables())
+				{
+					readout.update(tick);
+				}
+			}
+			catch(Throwable t)
+			{
+				failures.add(t);
+				throw t;
+			}
+		}
+		
+		/**
+		 * Returns whether the specified Readout is bound to the given key.
+		 * 
+		 * @param key the key to check
+		 * @param readout the Readout that should be bound to the key
+		 * @return whether the Readout is bound to the key
+		 */
+		public boolean holds(String key, Readout readout)
+		{
+			return readouts.get(key) == readout;
+		}
+		
+		/**
+		 * Returns the number of registered Readouts.
+		 * 
+		 * @return the number of registered Readouts
+		 */
+		public int count()
+		{
+			return readouts.size();
+		}
+		
+		/**
+		 * Returns the number of completed updates.
+		 * 
+		 * @return the number of completed updates
+		 */
+		public long getTicks()
+		{
+			return ticks.get();
+		}
+	}
+	
+	/**
+	 * A Readout that only counts how often it is updated. It never requests a redraw, so the test does
+	 * not depend on the event dispatch thread.
+	 * 
+	 * @author Mark Sabini
+	 *
+	 */
+	private static class CountingReadout extends Readout implements NumberUpdatable
+	{
+		/**
+		 * The number of updates received
+		 */
+		private final AtomicLong count = new AtomicLong();
+		
+		/**
+		 * The most recent value received
+		 */
+		private volatile double value;
+		
+		@Override
+		public void update(double value)
+		{
+			this.value = value;
+			count.incrementAndGet();
+		}
+		
+		@Override
+		public double getValue()
+		{
+			return value;
+		}
+		
+		/**
+		 * Returns the number of updates received.
+		 * 
+		 * @return the number of updates received
+		 */
+		public long getCount()
+		{
+			return count.get();
+		}
+	}
+}